@@ -2,14 +2,10 @@ package com.example.jwtauth;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.autoconfigure.domain.EntityScan;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
-@EntityScan("com.example.jwtauth.entity")
-@EnableJpaRepositories("com.example.jwtauth.repository")
 public class JwtAuthApplication {
     public static void main(String[] args) {
         SpringApplication.run(JwtAuthApplication.class, args);
     }
-} 
\ No newline at end of file
+}
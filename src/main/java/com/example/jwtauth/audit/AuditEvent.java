@@ -0,0 +1,19 @@
+package com.example.jwtauth.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 审计事件
+ * 创建后不可变，可以安全地在请求线程和写入线程之间传递
+ */
+@Getter
+@AllArgsConstructor
+public class AuditEvent {
+    private final long timestamp;       // 事件时间（毫秒）
+    private final AuditEventType type;  // 事件类型
+    private final String username;      // 相关用户名，可能为空
+    private final String clientIp;      // 客户端IP
+    private final String path;          // 请求路径
+    private final String detail;        // 补充说明
+}
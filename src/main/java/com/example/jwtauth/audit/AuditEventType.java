@@ -0,0 +1,28 @@
+package com.example.jwtauth.audit;
+
+/**
+ * 审计事件类型
+ * lowPriority为true的事件在缓冲区接近满时会优先被丢弃
+ */
+public enum AuditEventType {
+    LOGIN_SUCCESS(false),
+    LOGIN_FAILURE(false),
+    REGISTER_SUCCESS(false),
+    REGISTER_FAILURE(false),
+    TOKEN_REJECTED(false),
+    ACCESS_DENIED(false),
+    API_KEY_CREATED(false),
+    API_KEY_REVOKED(false),
+    REQUEST_ERROR(false),
+    PROFILE_ACCESS(true);
+
+    private final boolean lowPriority;
+
+    AuditEventType(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+    }
+
+    public boolean isLowPriority() {
+        return lowPriority;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * 安全审计日志详解：
+ *
+ * 1. 记录：
+ *    - 请求线程调用record，把事件放进无锁环形缓冲区后立即返回
+ *    - 请求线程永远不会等待审计I/O
+ *
+ * 2. 背压与丢弃：
+ *    - 缓冲区占用超过高水位(audit.high-watermark)时，低优先级事件（如/me访问）直接丢弃
+ *    - 缓冲区满时按audit.overflow-policy处理：DROP_NEWEST丢弃新事件，DROP_OLDEST挤掉最旧事件
+ *    - 所有丢弃都会计数，可通过getDroppedCount查看
+ *
+ * 3. 写入：
+ *    - 后台守护线程按批次(audit.batch-size)取出事件交给AuditSink
+ *    - 缓冲区为空时休眠audit.flush-interval-ms，事件积累到一个批次时由生产者提前唤醒
+ *    - 写入失败只记录日志并丢弃该批次，不会重试阻塞
+ */
+
+package com.example.jwtauth.audit;
+
+import com.example.jwtauth.audit.sink.AuditSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+public class AuditLogger {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogger.class);
+
+    private final AuditSink sink;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final int highWatermark;
+    private final AuditRingBuffer<AuditEvent> buffer;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    public AuditLogger(AuditSink sink,
+                       @Value("${audit.enabled:true}") boolean enabled,
+                       @Value("${audit.buffer-size:8192}") int bufferSize,
+                       @Value("${audit.batch-size:256}") int batchSize,
+                       @Value("${audit.flush-interval-ms:200}") long flushIntervalMs,
+                       @Value("${audit.overflow-policy:DROP_NEWEST}") OverflowPolicy overflowPolicy,
+                       @Value("${audit.high-watermark:0.8}") double highWatermark) {
+        this.sink = sink;
+        this.enabled = enabled;
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.highWatermark = (int) (buffer.capacity() * highWatermark);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::drainLoop, "audit-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * 记录审计事件（非阻塞）
+     */
+    public void record(AuditEventType type, String username, HttpServletRequest request, String detail) {
+        record(type, username,
+               request == null ? null : request.getRemoteAddr(),
+               request == null ? null : request.getRequestURI(),
+               detail);
+    }
+
+    /**
+     * 记录审计事件（非阻塞）
+     */
+    public void record(AuditEventType type, String username, String clientIp, String path, String detail) {
+        if (!enabled) {
+            return;
+        }
+        int size = buffer.size();
+        // 超过高水位后先牺牲低优先级事件，给重要事件留出空间
+        if (type.isLowPriority() && size >= highWatermark) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), type, username, clientIp, path, detail);
+        if (!buffer.offer(event)) {
+            droppedCount.incrementAndGet();
+            // DROP_OLDEST：挤掉一个最旧事件后再尝试一次，仍失败则放弃，不自旋等待
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST && buffer.poll() != null) {
+                if (!buffer.offer(event)) {
+                    droppedCount.incrementAndGet();
+                }
+            }
+            return;
+        }
+
+        // 积累够一个批次时提前唤醒写入线程
+        if (size + 1 >= batchSize) {
+            Thread thread = writer;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.drainTo(batch, batchSize) > 0) {
+                flush(batch);
+            } else {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        // 关闭前写出剩余事件
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        try {
+            sink.write(batch);
+            writtenCount.addAndGet(batch.size());
+        } catch (Exception e) {
+            failedCount.addAndGet(batch.size());
+            log.warn("Failed to write {} audit events: {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.jwtauth.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁的有界环形缓冲区（多生产者/多消费者）
+ *
+ * 每个槽位带一个序号，生产者和消费者只通过CAS推进各自的游标，不使用任何锁：
+ * - 槽位序号 == 写游标：槽位空闲，可以写入
+ * - 槽位序号 == 读游标 + 1：槽位已写入，可以读取
+ * 缓冲区满时offer立即返回false，调用方永远不会被阻塞
+ */
+public class AuditRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong writeCursor = new AtomicLong();
+    private final AtomicLong readCursor = new AtomicLong();
+
+    public AuditRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        // 容量取2的幂，用位运算代替取模
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 尝试写入元素
+     * @return 缓冲区已满时返回false
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long cursor = writeCursor.get();
+            int index = (int) cursor & mask;
+            long diff = sequences.get(index) - cursor;
+            if (diff == 0) {
+                if (writeCursor.compareAndSet(cursor, cursor + 1)) {
+                    elements.lazySet(index, element);
+                    // 先写元素再发布序号，消费者看到序号时一定能看到元素
+                    sequences.lazySet(index, cursor + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // diff > 0：其他生产者已抢占该槽位，重试
+        }
+    }
+
+    /**
+     * 取出最旧的元素
+     * @return 缓冲区为空时返回null
+     */
+    public E poll() {
+        while (true) {
+            long cursor = readCursor.get();
+            int index = (int) cursor & mask;
+            long diff = sequences.get(index) - (cursor + 1);
+            if (diff == 0) {
+                if (readCursor.compareAndSet(cursor, cursor + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    // 释放槽位给下一轮写入
+                    sequences.lazySet(index, cursor + capacity);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 批量取出元素
+     * @return 实际取出的数量
+     */
+    public int drainTo(List<? super E> target, int maxElements) {
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 当前元素数量的近似值
+     */
+    public int size() {
+        long size = writeCursor.get() - readCursor.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.jwtauth.audit;
+
+/**
+ * 审计缓冲区满时的丢弃策略
+ */
+public enum OverflowPolicy {
+    /** 丢弃新事件，保留已缓冲的事件 */
+    DROP_NEWEST,
+    /** 丢弃最旧的事件，为新事件腾出位置 */
+    DROP_OLDEST
+}
@@ -0,0 +1,18 @@
+package com.example.jwtauth.audit.sink;
+
+import com.example.jwtauth.audit.AuditEvent;
+
+import java.util.List;
+
+/**
+ * 审计事件的持久化目标
+ * 只会被后台写入线程调用，实现不需要考虑并发
+ */
+public interface AuditSink {
+
+    /**
+     * 批量写入审计事件
+     * @param batch 一批事件，按记录顺序排列
+     */
+    void write(List<AuditEvent> batch) throws Exception;
+}
@@ -0,0 +1,107 @@
+package com.example.jwtauth.audit.sink;
+
+import com.example.jwtauth.audit.AuditEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 写入本地文件的审计目标
+ * 以追加方式写入，每行一个JSON事件，一个批次只做一次write系统调用
+ */
+@Component
+@ConditionalOnProperty(prefix = "audit", name = "sink", havingValue = "file", matchIfMissing = true)
+public class FileAuditSink implements AuditSink {
+
+    private final Path file;
+    private final boolean sync;
+    private FileChannel channel;
+
+    public FileAuditSink(@Value("${audit.file:logs/audit.log}") String file,
+                         @Value("${audit.file-sync:false}") boolean sync) {
+        this.file = Paths.get(file);
+        this.sync = sync;
+    }
+
+    @Override
+    public void write(List<AuditEvent> batch) throws IOException {
+        StringBuilder lines = new StringBuilder(batch.size() * 160);
+        for (AuditEvent event : batch) {
+            appendJson(lines, event);
+            lines.append('\n');
+        }
+        FileChannel out = channel();
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        if (sync) {
+            out.force(false);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private static void appendJson(StringBuilder out, AuditEvent event) {
+        out.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(event.getTimestamp())).append('"');
+        out.append(",\"type\":\"").append(event.getType()).append('"');
+        appendField(out, "username", event.getUsername());
+        appendField(out, "clientIp", event.getClientIp());
+        appendField(out, "path", event.getPath());
+        appendField(out, "detail", event.getDetail());
+        out.append('}');
+    }
+
+    private static void appendField(StringBuilder out, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
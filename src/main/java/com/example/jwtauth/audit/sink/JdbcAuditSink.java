@@ -0,0 +1,64 @@
+package com.example.jwtauth.audit.sink;
+
+import com.example.jwtauth.audit.AuditEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 写入PostgreSQL表的审计目标
+ * 表只追加不更新，一个批次通过JDBC批处理一次提交
+ */
+@Component
+@ConditionalOnProperty(prefix = "audit", name = "sink", havingValue = "jdbc")
+@RequiredArgsConstructor
+public class JdbcAuditSink implements AuditSink {
+
+    private static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS audit_events ("
+            + "id BIGSERIAL PRIMARY KEY, "
+            + "event_time TIMESTAMP NOT NULL, "
+            + "event_type VARCHAR(32) NOT NULL, "
+            + "username VARCHAR(255), "
+            + "client_ip VARCHAR(64), "
+            + "path VARCHAR(255), "
+            + "detail VARCHAR(512))";
+
+    private static final String INSERT =
+            "INSERT INTO audit_events (event_time, event_type, username, client_ip, path, detail) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    @Override
+    public void write(List<AuditEvent> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (AuditEvent event : batch) {
+            rows.add(new Object[]{
+                new Timestamp(event.getTimestamp()),
+                event.getType().name(),
+                // 登录失败事件中的用户名由客户端输入，超长时不能让整批写入失败
+                truncate(event.getUsername(), 255),
+                truncate(event.getClientIp(), 64),
+                truncate(event.getPath(), 255),
+                truncate(event.getDetail(), 512)
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+}
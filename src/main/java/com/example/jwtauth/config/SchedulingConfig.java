@@ -0,0 +1,12 @@
+package com.example.jwtauth.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 启用定时任务（会话最后访问时间的批量写入等）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
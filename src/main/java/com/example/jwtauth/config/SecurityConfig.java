@@ -4,24 +4,38 @@
  * 主要配置：
  * 1. 安全规则：
  *    - /api/auth/** 公开访问（用于登录注册）
+ *    - /actuator/health/** 公开访问（容器存活和就绪探针）
+ *    - /api/auth/me 和会话管理接口（/api/auth/sessions、/logout、/logout-all）需要认证
  *    - 其他API需要认证
+ *    - 接口级权限由控制器上的@PreAuthorize检查（见PermissionChecker）
  * 
  * 2. 认证配置：
+ *    - 租户过滤器：按请求头确定租户
  *    - JWT过滤器：验证token
+ *    - API key过滤器：验证机器客户端的API key（请求未携带有效token时）
+ *    - 限流过滤器：认证之后按主体和角色限流
  *    - 密码加密：使用BCrypt加密
  *    - 跨域支持：启用CORS
  *    - 禁用session：使用无状态JWT认证
+ *
+ * 3. 拒绝响应：
+ *    - 未认证（401）和无权限（403）由ErrorResponseWriter直接写出，不经过/error分发和全局异常处理
  */
 
 package com.example.jwtauth.config;
 
+import com.example.jwtauth.security.ApiKeyAuthenticationFilter;
+import com.example.jwtauth.security.ErrorResponseWriter;
 import com.example.jwtauth.security.JwtAuthenticationFilter;
+import com.example.jwtauth.security.RateLimitFilter;
+import com.example.jwtauth.security.TenantFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
@@ -38,6 +52,7 @@ import java.util.Arrays;
 
 @Configuration
 @EnableWebSecurity
+@EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Autowired
@@ -46,6 +61,18 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private TenantFilter tenantFilter;
+
+    @Autowired
+    private ErrorResponseWriter errorResponseWriter;
+
     private UserDetailsService getUserDetailsService() {
         return applicationContext.getBean(UserDetailsService.class);
     }
@@ -75,11 +102,20 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .sessionManagement()
             .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             .and()
+            .exceptionHandling()
+            .authenticationEntryPoint(errorResponseWriter)
+            .accessDeniedHandler(errorResponseWriter)
+            .and()
             .authorizeRequests()
+            .antMatchers("/api/auth/me", "/api/auth/sessions", "/api/auth/logout", "/api/auth/logout-all").authenticated()
             .antMatchers("/api/auth/**").permitAll()
+            .antMatchers("/actuator/health/**").permitAll()
             .anyRequest().authenticated()
             .and()
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(apiKeyAuthenticationFilter, JwtAuthenticationFilter.class)
+            .addFilterAfter(rateLimitFilter, ApiKeyAuthenticationFilter.class)
+            .addFilterBefore(tenantFilter, JwtAuthenticationFilter.class);
     }
 
     /**
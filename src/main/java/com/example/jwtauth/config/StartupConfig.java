@@ -0,0 +1,65 @@
+/**
+ * 启动优化配置
+ *
+ * 把非关键组件（默认是springdoc的OpenAPI文档）的bean标记为懒加载，
+ * 第一次访问文档时才创建，不再拖慢应用启动。
+ * 需要懒加载的包前缀可通过startup.lazy-packages配置。
+ */
+
+package com.example.jwtauth.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.List;
+
+@Configuration
+public class StartupConfig {
+
+    // 必须是static方法，BeanFactoryPostProcessor要在其他bean创建之前注册
+    @Bean
+    public static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(Collections.singletonList("org.springdoc"));
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (isInPackages(beanClassName(beanFactory, definition), packages)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    // @Bean方法定义的bean没有类名，按声明它的配置类判断
+    private static String beanClassName(ConfigurableListableBeanFactory beanFactory, BeanDefinition definition) {
+        if (definition.getBeanClassName() != null) {
+            return definition.getBeanClassName();
+        }
+        String factoryBean = definition.getFactoryBeanName();
+        if (factoryBean != null && beanFactory.containsBeanDefinition(factoryBean)) {
+            return beanFactory.getBeanDefinition(factoryBean).getBeanClassName();
+        }
+        return null;
+    }
+
+    private static boolean isInPackages(String className, List<String> packages) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : packages) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.jwtauth.controller;
+
+import com.example.jwtauth.audit.AuditEventType;
+import com.example.jwtauth.audit.AuditLogger;
+import com.example.jwtauth.dto.ApiKeyRequest;
+import com.example.jwtauth.dto.ApiKeyResponse;
+import com.example.jwtauth.security.PermissionChecker;
+import com.example.jwtauth.service.ApiKeyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * API key控制器
+ * 用户为机器客户端创建、查询和吊销API key；API key本身没有API_KEY_MANAGE权限，不能管理其他key
+ */
+@RestController
+@RequestMapping("/api/keys")
+@RequiredArgsConstructor
+public class ApiKeyController {
+
+    private final ApiKeyService apiKeyService;
+    private final AuditLogger auditLogger;
+
+    /**
+     * 创建API key
+     * @param apiKeyRequest 名称、作用域、每分钟请求上限和有效天数
+     * @return key信息，key明文只在此时返回一次
+     */
+    @PostMapping
+    @PreAuthorize("@perm.has(authentication, 'API_KEY_MANAGE')")
+    public ResponseEntity<?> create(@RequestBody ApiKeyRequest apiKeyRequest, HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        ApiKeyResponse response;
+        try {
+            response = apiKeyService.create(authentication.getName(),
+                PermissionChecker.permissionsOf(authentication), apiKeyRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+        auditLogger.record(AuditEventType.API_KEY_CREATED, authentication.getName(), request, response.getKeyPrefix());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 查询当前用户的API key
+     * @return API key列表（不含明文）
+     */
+    @GetMapping
+    @PreAuthorize("@perm.has(authentication, 'API_KEY_MANAGE')")
+    public ResponseEntity<List<ApiKeyResponse>> list() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ResponseEntity.ok(apiKeyService.findKeys(authentication.getName()));
+    }
+
+    /**
+     * 吊销API key
+     * @param id key ID
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("@perm.has(authentication, 'API_KEY_MANAGE')")
+    public ResponseEntity<?> revoke(@PathVariable Long id, HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!apiKeyService.revoke(authentication.getName(), id)) {
+            return ResponseEntity.notFound().build();
+        }
+        auditLogger.record(AuditEventType.API_KEY_REVOKED, authentication.getName(), request, String.valueOf(id));
+        return ResponseEntity.ok("API key revoked successfully!");
+    }
+}
@@ -1,17 +1,44 @@
 package com.example.jwtauth.controller;
 
+import com.example.jwtauth.audit.AuditEventType;
+import com.example.jwtauth.audit.AuditLogger;
 import com.example.jwtauth.dto.AuthRequest;
 import com.example.jwtauth.dto.AuthResponse;
+import com.example.jwtauth.dto.CurrentUserResponse;
+import com.example.jwtauth.dto.RegisterRequest;
+import com.example.jwtauth.dto.SessionResponse;
 import com.example.jwtauth.entity.User;
+import com.example.jwtauth.exception.UsernameAlreadyExistsException;
+import com.example.jwtauth.logging.SampledLogger;
+import com.example.jwtauth.security.JwtAuthenticationDetails;
+import com.example.jwtauth.service.SessionService;
 import com.example.jwtauth.service.UserService;
 import com.example.jwtauth.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 认证控制器
@@ -22,24 +49,42 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
+    // 登录失败和重复注册按原因采样，撞库时日志量不随请求量增长
+    private static final SampledLogger failureLog = new SampledLogger(log, 10, 60_000);
+
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final AuditLogger auditLogger;
+    private final SessionService sessionService;
 
     /**
      * 用户登录
      * @param authRequest 登录请求，包含用户名和密码
+     * @param format 令牌格式，内部服务可传compact获取紧凑令牌，默认为标准JWT
      * @return JWT token和用户信息
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AuthRequest authRequest) {
+    public ResponseEntity<?> login(@RequestBody AuthRequest authRequest,
+                                   @RequestParam(value = "format", required = false) String format,
+                                   HttpServletRequest request) {
         // 验证用户名和密码
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(
-                authRequest.getUsername(),
-                authRequest.getPassword()
-            )
-        );
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                    authRequest.getUsername(),
+                    authRequest.getPassword()
+                )
+            );
+        } catch (AuthenticationException e) {
+            auditLogger.record(AuditEventType.LOGIN_FAILURE, authRequest.getUsername(), request, e.getClass().getSimpleName());
+            failureLog.info(e.getClass().getSimpleName(), "Login failed for user {}: {}",
+                authRequest.getUsername(), e.getClass().getSimpleName());
+            throw e;
+        }
 
         // 设置认证信息到Spring Security上下文
         SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -47,8 +92,15 @@ public class AuthController {
         // 获取认证用户信息
         User user = (User) authentication.getPrincipal();
 
-        // 生成JWT token
-        String token = jwtUtil.generateToken(user);
+        // 登记会话，超过活跃会话上限时最早的会话会被注销
+        String tokenId = sessionService.register(user.getUsername(), request);
+
+        // 生成token，只有启用紧凑令牌时才接受format=compact
+        String token = "compact".equals(format) && jwtUtil.isCompactEnabled()
+            ? jwtUtil.generateCompactToken(user, tokenId)
+            : jwtUtil.generateToken(user, tokenId);
+        auditLogger.record(AuditEventType.LOGIN_SUCCESS, user.getUsername(), request, format);
+        log.debug("User {} logged in, session {}", user.getUsername(), tokenId);
 
         // 构建响应
         AuthResponse response = new AuthResponse(
@@ -63,31 +115,116 @@ public class AuthController {
 
     /**
      * 用户注册
-     * @param user 用户信息
-     * @return 注册成功的用户信息
+     * @param registerRequest 用户名、密码和邮箱；角色和账号状态由服务端设置
+     * @return 注册结果
      */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody User user) {
-        // 检查用户名是否已存在
-        if (userService.existsByUsername(user.getUsername())) {
+    public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest, HttpServletRequest request) {
+        // 用户名检查和写入都在registerUser中完成，重复注册返回409
+        try {
+            userService.registerUser(registerRequest);
+        } catch (UsernameAlreadyExistsException e) {
+            auditLogger.record(AuditEventType.REGISTER_FAILURE, registerRequest.getUsername(), request, "username taken");
+            failureLog.info("username taken", "Registration rejected, username {} is taken", registerRequest.getUsername());
             return ResponseEntity
-                .badRequest()
+                .status(HttpStatus.CONFLICT)
                 .body("Error: Username is already taken!");
         }
-
-        // 注册新用户
-        User registeredUser = userService.registerUser(user);
+        auditLogger.record(AuditEventType.REGISTER_SUCCESS, registerRequest.getUsername(), request, null);
 
         return ResponseEntity.ok("User registered successfully!");
     }
 
     /**
      * 获取当前登录用户信息
+     * 响应只由已验证的主体构建，并带有强ETag；客户端携带If-None-Match且未变化时返回304
      * @return 当前用户信息
      */
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser() {
-        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return ResponseEntity.ok(user);
+    @PreAuthorize("@perm.has(authentication, 'PROFILE_READ')")
+    public ResponseEntity<CurrentUserResponse> getCurrentUser(HttpServletRequest request, WebRequest webRequest) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        auditLogger.record(AuditEventType.PROFILE_ACCESS, authentication.getName(), request, null);
+
+        Object details = authentication.getDetails();
+        JwtAuthenticationDetails tokenDetails = details instanceof JwtAuthenticationDetails
+            ? (JwtAuthenticationDetails) details
+            : null;
+        Object principal = authentication.getPrincipal();
+        CurrentUserResponse response = new CurrentUserResponse(
+            authentication.getName(),
+            principal instanceof User ? ((User) principal).getEmail() : null,
+            authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith("ROLE_") ? authority.substring(5) : authority)
+                .collect(Collectors.toList()),
+            tokenDetails == null ? null : tokenDetails.getIssuedAt(),
+            tokenDetails == null ? null : tokenDetails.getExpiration()
+        );
+
+        // ETag未变化时直接返回304，不序列化响应体
+        String eTag = eTag(tokenDetails == null ? null : tokenDetails.getTokenId(), response);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .eTag(eTag)
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .body(response);
+    }
+
+    /**
+     * 查询当前用户的活跃会话（设备）
+     * @return 活跃会话列表
+     */
+    @GetMapping("/sessions")
+    @PreAuthorize("@perm.has(authentication, 'SESSION_READ')")
+    public ResponseEntity<List<SessionResponse>> getSessions() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ResponseEntity.ok(sessionService.findActiveSessions(authentication.getName(), currentTokenId(authentication)));
+    }
+
+    /**
+     * 注销当前会话
+     */
+    @PostMapping("/logout")
+    @PreAuthorize("@perm.has(authentication, 'SESSION_REVOKE')")
+    public ResponseEntity<?> logout() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String tokenId = currentTokenId(authentication);
+        if (tokenId != null) {
+            sessionService.revoke(tokenId);
+        }
+        return ResponseEntity.ok("Logged out successfully!");
+    }
+
+    /**
+     * 注销当前用户的所有会话（登出所有设备）
+     * @return 注销的会话数
+     */
+    @PostMapping("/logout-all")
+    @PreAuthorize("@perm.has(authentication, 'SESSION_REVOKE')")
+    public ResponseEntity<Map<String, Integer>> logoutAll() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        int revoked = sessionService.revokeAll(authentication.getName());
+        return ResponseEntity.ok(Collections.singletonMap("revoked", revoked));
+    }
+
+    // 从认证详情中取当前token的ID
+    private static String currentTokenId(Authentication authentication) {
+        Object details = authentication.getDetails();
+        return details instanceof JwtAuthenticationDetails ? ((JwtAuthenticationDetails) details).getTokenId() : null;
+    }
+
+    // 由token ID和响应内容计算强ETag，token或用户信息任一变化都会改变ETag
+    private static String eTag(String tokenId, CurrentUserResponse response) {
+        String source = tokenId + '|' + response.getUsername() + '|' + response.getEmail() + '|'
+            + response.getRoles() + '|' + response.getTokenIssuedAt() + '|' + response.getTokenExpiresAt();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.example.jwtauth.controller;
 
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -7,6 +8,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class TestController {
 
     @GetMapping("/test")
+    @PreAuthorize("@perm.has(authentication, 'API_ACCESS')")
     public String test() {
         return "API is working!";
     }
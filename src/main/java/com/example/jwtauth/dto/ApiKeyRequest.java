@@ -0,0 +1,21 @@
+package com.example.jwtauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 创建API key的请求DTO
+ * 作用域为权限名称（见Permission），为空时继承创建者的全部权限；每分钟请求上限为空时使用api-key.default-rate-limit-per-minute
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiKeyRequest {
+    private String name;
+    private List<String> scopes;
+    private Integer rateLimitPerMinute;
+    private Integer expiresInDays;
+}
@@ -0,0 +1,28 @@
+package com.example.jwtauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * API key信息DTO
+ * key的明文只在创建时返回一次，之后只能看到前缀
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiKeyResponse {
+    private Long id;
+    private String name;
+    private String key;
+    private String keyPrefix;
+    private List<String> scopes;
+    private Integer rateLimitPerMinute;
+    private Instant createdAt;
+    private Instant expiresAt;
+    private Instant lastUsedAt;
+    private boolean revoked;
+}
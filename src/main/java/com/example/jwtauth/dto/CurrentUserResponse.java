@@ -0,0 +1,23 @@
+package com.example.jwtauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 当前用户信息DTO
+ * 只包含已认证主体和token中的信息，不返回密码等实体字段
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CurrentUserResponse {
+    private String username;
+    private String email;
+    private List<String> roles;
+    private Date tokenIssuedAt;
+    private Date tokenExpiresAt;
+}
@@ -0,0 +1,18 @@
+package com.example.jwtauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 注册请求DTO
+ * 只接收用户名、密码和邮箱；角色和账号状态由服务端决定，请求体中的其他字段被忽略
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegisterRequest {
+    private String username;
+    private String password;
+    private String email;
+}
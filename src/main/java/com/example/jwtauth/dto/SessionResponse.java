@@ -0,0 +1,22 @@
+package com.example.jwtauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 会话信息DTO
+ * 用于返回用户当前的活跃会话（设备）列表
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionResponse {
+    private String jti;
+    private String deviceFingerprint;
+    private Instant issuedAt;
+    private Instant lastSeenAt;
+    private boolean current;
+}
@@ -0,0 +1,59 @@
+package com.example.jwtauth.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * API key实体类
+ * 供机器客户端长期使用的凭证，只保存key的SHA-256哈希，明文只在创建时返回一次
+ */
+@Entity
+@Table(name = "api_keys", indexes = {
+    @Index(name = "uk_api_keys_key_hash", columnList = "key_hash", unique = true),
+    @Index(name = "idx_api_keys_owner", columnList = "tenant_id, username")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "key_hash", nullable = false, length = 64)
+    private String keyHash;  // key的SHA-256（十六进制），验证时按哈希查找
+
+    @Column(name = "key_prefix", nullable = false, length = 16)
+    private String keyPrefix;  // key的前几个字符，用于在列表中辨认
+
+    @Column(name = "tenant_id", nullable = false, length = 64)
+    private String tenantId;  // 所属租户
+
+    @Column(nullable = false)
+    private String username;  // 所属用户
+
+    @Column(nullable = false, length = 100)
+    private String name;  // 用途说明
+
+    @Column(nullable = false)
+    private long permissions;  // 作用域（权限掩码），不超过创建者自己的权限
+
+    @Column(name = "rate_limit_per_minute")
+    private Integer rateLimitPerMinute;  // 每分钟请求上限，为空时不限制
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;  // 创建时间
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;  // 过期时间，为空时长期有效
+
+    @Column(name = "last_used_at")
+    private Instant lastUsedAt;  // 最后使用时间，批量延迟写入
+
+    private boolean revoked = false;  // 是否已吊销
+}
@@ -1,5 +1,6 @@
 package com.example.jwtauth.entity;
 
+import com.example.jwtauth.tenant.TenantContextHolder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,9 +17,13 @@ import java.util.stream.Collectors;
  * 用户实体类
  * 实现UserDetails接口以便与Spring Security集成
  * 使用Lombok简化getter/setter等方法的编写
+ * 用户按租户隔离：用户名和邮箱只在同一租户内唯一
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_users_tenant_username", columnNames = {"tenant_id", "username"}),
+    @UniqueConstraint(name = "uk_users_tenant_email", columnNames = {"tenant_id", "email"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,14 +32,17 @@ public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @Column(name = "tenant_id", nullable = false, length = 64)
+    private String tenantId = TenantContextHolder.DEFAULT_TENANT;  // 所属租户
     
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
     
     @Column(nullable = false)
     private String password;
     
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
     
     @ElementCollection(fetch = FetchType.EAGER)
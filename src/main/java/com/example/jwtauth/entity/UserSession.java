@@ -0,0 +1,50 @@
+package com.example.jwtauth.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * 用户会话实体类
+ * 每次登录签发的token对应一条记录，通过jti关联
+ */
+@Entity
+@Table(name = "user_sessions", indexes = {
+    @Index(name = "uk_user_sessions_jti", columnList = "jti", unique = true),
+    @Index(name = "idx_user_sessions_username", columnList = "tenant_id, username, revoked")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String jti;  // token ID
+
+    @Column(name = "tenant_id", nullable = false, length = 64)
+    private String tenantId;  // 所属租户
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "device_fingerprint", length = 64)
+    private String deviceFingerprint;  // 设备指纹
+
+    @Column(name = "issued_at", nullable = false)
+    private Instant issuedAt;  // 签发时间
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;  // 过期时间
+
+    @Column(name = "last_seen_at")
+    private Instant lastSeenAt;  // 最后访问时间，批量延迟写入
+
+    private boolean revoked = false;  // 是否已注销
+}
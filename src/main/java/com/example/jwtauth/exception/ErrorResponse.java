@@ -8,13 +8,20 @@ public class ErrorResponse {
     private String error;
     private String message;
     private String path;
+    private String requestId;
 
     public ErrorResponse(LocalDateTime timestamp, int status, String error, String message, String path) {
+        this(timestamp, status, error, message, path, null);
+    }
+
+    public ErrorResponse(LocalDateTime timestamp, int status, String error, String message, String path,
+                         String requestId) {
         this.timestamp = timestamp;
         this.status = status;
         this.error = error;
         this.message = message;
         this.path = path;
+        this.requestId = requestId;
     }
 
     // Getters and Setters
@@ -57,4 +64,12 @@ public class ErrorResponse {
     public void setPath(String path) {
         this.path = path;
     }
-} 
\ No newline at end of file
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+}
@@ -1,11 +1,20 @@
 package com.example.jwtauth.exception;
 
+import com.example.jwtauth.audit.AuditEventType;
+import com.example.jwtauth.audit.AuditLogger;
+import com.example.jwtauth.logging.RequestIdFilter;
+import com.example.jwtauth.logging.SampledLogger;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
 import io.jsonwebtoken.ExpiredJwtException;
@@ -15,8 +24,16 @@ import io.jsonwebtoken.SignatureException;
 import java.time.LocalDateTime;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    // 认证失败和权限拒绝可能非常频繁，按异常类型采样，每分钟每种最多10条
+    private static final SampledLogger sampledLog = new SampledLogger(log, 10, 60_000);
+
+    private final AuditLogger auditLogger;
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleUsernameNotFoundException(UsernameNotFoundException ex, WebRequest request) {
         ErrorResponse errorResponse = new ErrorResponse(
@@ -24,19 +41,22 @@ public class GlobalExceptionHandler {
             HttpStatus.NOT_FOUND.value(),
             "User not found",
             ex.getMessage(),
-            request.getDescription(false)
+            request.getDescription(false),
+            RequestIdFilter.currentRequestId()
         );
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ErrorResponse> handleBadCredentialsException(BadCredentialsException ex, WebRequest request) {
+        sampledLog.info("BadCredentialsException", "Authentication failed for {}", request.getDescription(false));
         ErrorResponse errorResponse = new ErrorResponse(
             LocalDateTime.now(),
             HttpStatus.UNAUTHORIZED.value(),
             "Invalid credentials",
             ex.getMessage(),
-            request.getDescription(false)
+            request.getDescription(false),
+            RequestIdFilter.currentRequestId()
         );
         return new ResponseEntity<>(errorResponse, HttpStatus.UNAUTHORIZED);
     }
@@ -51,26 +71,59 @@ public class GlobalExceptionHandler {
         } else if (ex instanceof SignatureException) {
             message = "JWT signature does not match";
         }
+        audit(AuditEventType.TOKEN_REJECTED, request, message);
+        sampledLog.warn(ex.getClass().getSimpleName(), "{} for {}", message, request.getDescription(false));
 
         ErrorResponse errorResponse = new ErrorResponse(
             LocalDateTime.now(),
             HttpStatus.UNAUTHORIZED.value(),
             message,
             ex.getMessage(),
-            request.getDescription(false)
+            request.getDescription(false),
+            RequestIdFilter.currentRequestId()
         );
         return new ResponseEntity<>(errorResponse, HttpStatus.UNAUTHORIZED);
     }
 
+    // 方法安全注解拒绝的请求在控制器内抛出，不经过Spring Security的异常处理
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<ErrorResponse> handleAccessDeniedException(AccessDeniedException ex, WebRequest request) {
+        audit(AuditEventType.ACCESS_DENIED, request, ex.getMessage());
+        sampledLog.warn("AccessDeniedException", "Access denied for {}", request.getDescription(false));
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            HttpStatus.FORBIDDEN.value(),
+            "Access denied",
+            ex.getMessage(),
+            request.getDescription(false),
+            RequestIdFilter.currentRequestId()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.FORBIDDEN);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex, WebRequest request) {
+        audit(AuditEventType.REQUEST_ERROR, request, ex.getClass().getSimpleName());
+        // 未预期的错误需要堆栈，但同一种异常重复出现时只保留样本
+        sampledLog.error(ex.getClass().getName(), "Unexpected error for {}", request.getDescription(false), ex);
         ErrorResponse errorResponse = new ErrorResponse(
             LocalDateTime.now(),
             HttpStatus.INTERNAL_SERVER_ERROR.value(),
             "An unexpected error occurred",
             ex.getMessage(),
-            request.getDescription(false)
+            request.getDescription(false),
+            RequestIdFilter.currentRequestId()
         );
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
-} 
\ No newline at end of file
+
+    // 记录审计事件，用户名取自当前认证用户
+    private void audit(AuditEventType type, WebRequest request, String detail) {
+        String username = request.getUserPrincipal() == null ? null : request.getUserPrincipal().getName();
+        if (request instanceof ServletWebRequest) {
+            auditLogger.record(type, username, ((ServletWebRequest) request).getRequest(), detail);
+        } else {
+            auditLogger.record(type, username, null, request.getDescription(false), detail);
+        }
+    }
+}
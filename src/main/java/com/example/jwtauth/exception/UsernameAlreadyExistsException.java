@@ -0,0 +1,12 @@
+package com.example.jwtauth.exception;
+
+/**
+ * 注册时用户名在租户内已存在（或同名注册正在进行中）
+ * 由AuthController映射为409 Conflict
+ */
+public class UsernameAlreadyExistsException extends RuntimeException {
+
+    public UsernameAlreadyExistsException(String username) {
+        super("Username is already taken: " + username);
+    }
+}
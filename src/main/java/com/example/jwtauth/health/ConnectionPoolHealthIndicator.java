@@ -0,0 +1,54 @@
+package com.example.jwtauth.health;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * 连接池预热检查
+ *
+ * Hikari在第一次获取连接时才启动连接池，之后由后台线程补足minimumIdle个空闲连接。
+ * 连接数达到minimumIdle之前报告OUT_OF_SERVICE，避免第一批请求承担建连开销。
+ * 内存存储模式下没有数据源，直接报告UP。
+ */
+@Component
+public class ConnectionPoolHealthIndicator extends AbstractHealthIndicator {
+
+    private final DataSource dataSource;
+
+    public ConnectionPoolHealthIndicator(ObjectProvider<DataSource> dataSource) {
+        this.dataSource = dataSource.getIfAvailable();
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        if (!(dataSource instanceof HikariDataSource)) {
+            builder.up().withDetail("pool", "none");
+            return;
+        }
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) {
+            // 连接池尚未启动，借还一个连接触发启动和后台填充
+            try (Connection ignored = hikari.getConnection()) {
+                pool = hikari.getHikariPoolMXBean();
+            }
+        }
+        int total = pool.getTotalConnections();
+        int target = Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize());
+        builder.withDetail("total", total)
+               .withDetail("idle", pool.getIdleConnections())
+               .withDetail("minimumIdle", target);
+        if (total >= target) {
+            builder.up();
+        } else {
+            builder.outOfService();
+        }
+    }
+}
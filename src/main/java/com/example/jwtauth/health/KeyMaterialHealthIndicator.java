@@ -0,0 +1,27 @@
+package com.example.jwtauth.health;
+
+import com.example.jwtauth.util.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * 签名密钥就绪检查
+ * 密钥、签名引擎和解析器初始化完成之前不接收流量，否则签发和验证token都会失败
+ */
+@Component
+@RequiredArgsConstructor
+public class KeyMaterialHealthIndicator extends AbstractHealthIndicator {
+
+    private final JwtUtil jwtUtil;
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (jwtUtil.isKeyMaterialReady()) {
+            builder.up();
+        } else {
+            builder.outOfService().withDetail("reason", "signing key not initialized");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * 缓存失效总线详解：
+ *
+ * 1. 用途：
+ *    - 各节点在进程内缓存会话、API key等数据；某个节点修改后，通过总线通知其他节点丢弃对应的缓存项
+ *    - 缓存因此可以使用较长的有效期，TTL只作为兜底
+ *
+ * 2. 发布：
+ *    - publish只把（主题, 键）放入待发送集合，不做I/O；同一个键在一个周期内多次发布只发送一次
+ *    - 定时任务每隔invalidation.flush-interval-ms把待发送集合打包成尽量少的消息发出
+ *    - 本节点的缓存由修改方自己更新，总线不会把消息交给本节点的订阅者
+ *    - 待发送的键超过invalidation.max-pending时改为发送一条重置消息，所有节点清空缓存
+ *    - 发送失败的键放回待发送集合，下个周期重试
+ *
+ * 3. 接收：
+ *    - 订阅者按主题注册，在传输的接收线程中被调用，需要线程安全
+ *    - 键为null表示清空该主题的全部缓存（收到重置消息，或监听连接重连后可能丢失了消息）
+ *
+ * 4. 消息格式：
+ *    第一行为发送节点ID，之后每行一项：主题编码 + URL编码的键；"*"表示重置
+ */
+
+package com.example.jwtauth.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+@Component
+public class InvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private static final String RESET = "*";
+
+    private static final int DEFAULT_MAX_PENDING = 10000;
+
+    private final InvalidationTransport transport;
+    private final int maxPending;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<InvalidationTopic, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    // 待发送的项（主题编码 + 编码后的键），集合本身完成合并
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean resetPending = new AtomicBoolean();
+
+    @Autowired
+    public InvalidationBus(InvalidationTransport transport,
+                           @Value("${invalidation.max-pending:10000}") int maxPending) {
+        this.transport = transport;
+        this.maxPending = maxPending;
+    }
+
+    public InvalidationBus(InvalidationTransport transport) {
+        this(transport, DEFAULT_MAX_PENDING);
+    }
+
+    @PostConstruct
+    public void start() {
+        transport.start(new InvalidationTransport.Receiver() {
+            @Override
+            public void onMessage(String payload) {
+                receive(payload);
+            }
+
+            @Override
+            public void onReset() {
+                resetAll();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+        transport.stop();
+    }
+
+    /**
+     * 订阅主题
+     * @param listener 参数为失效的键，为null时表示清空该主题的全部缓存
+     */
+    public void subscribe(InvalidationTopic topic, Consumer<String> listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 通知其他节点丢弃缓存项，在下一次flush时发出
+     */
+    public void publish(InvalidationTopic topic, String key) {
+        if (pending.size() >= maxPending) {
+            resetPending.set(true);
+            return;
+        }
+        pending.add(topic.code() + URLEncoder.encode(key, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 把待发送的项打包发出
+     */
+    @Scheduled(fixedDelayString = "${invalidation.flush-interval-ms:100}")
+    public synchronized void flush() {
+        if (resetPending.getAndSet(false)) {
+            // 重置消息发出之前发布的项都被它覆盖，不需要再单独发送
+            pending.clear();
+            List<String> reset = new ArrayList<>(1);
+            reset.add(RESET);
+            send(reset);
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int maxLength = transport.maxPayloadLength();
+        List<String> batch = new ArrayList<>();
+        int length = nodeId.length();
+        Iterator<String> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            String entry = iterator.next();
+            iterator.remove();
+            if (length + 1 + entry.length() > maxLength && !batch.isEmpty()) {
+                if (!send(batch)) {
+                    pending.add(entry);
+                    return;
+                }
+                batch.clear();
+                length = nodeId.length();
+            }
+            batch.add(entry);
+            length += 1 + entry.length();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    // 发送一条消息，失败时把这批项放回待发送集合
+    private boolean send(List<String> entries) {
+        StringBuilder payload = new StringBuilder(nodeId);
+        for (String entry : entries) {
+            payload.append('\n').append(entry);
+        }
+        try {
+            transport.send(payload.toString());
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to send {} cache invalidations, will retry: {}", entries.size(), e.getMessage());
+            if (entries.contains(RESET)) {
+                resetPending.set(true);
+            } else {
+                pending.addAll(entries);
+            }
+            return false;
+        }
+    }
+
+    void receive(String payload) {
+        String[] lines = payload.split("\n");
+        // 本节点发出的消息，缓存已由修改方更新
+        if (lines.length == 0 || nodeId.equals(lines[0])) {
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            if (RESET.equals(line)) {
+                resetAll();
+                return;
+            }
+            InvalidationTopic topic = line.isEmpty() ? null : InvalidationTopic.fromCode(line.charAt(0));
+            if (topic == null) {
+                log.warn("Ignoring unknown cache invalidation entry: {}", line);
+                continue;
+            }
+            dispatch(topic, URLDecoder.decode(line.substring(1), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void resetAll() {
+        for (InvalidationTopic topic : InvalidationTopic.values()) {
+            dispatch(topic, null);
+        }
+    }
+
+    private void dispatch(InvalidationTopic topic, String key) {
+        for (Consumer<String> listener : listeners.getOrDefault(topic, Collections.emptyList())) {
+            try {
+                listener.accept(key);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener for {} failed: {}", topic, e.getMessage());
+            }
+        }
+    }
+}
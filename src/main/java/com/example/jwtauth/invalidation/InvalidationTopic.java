@@ -0,0 +1,42 @@
+package com.example.jwtauth.invalidation;
+
+/**
+ * 缓存失效通知的主题，每个主题对应一类缓存键
+ */
+public enum InvalidationTopic {
+
+    /**
+     * 用户的安全状态变化（注册、角色变更、锁定、注销全部会话），键为租户ID + '\0' + 用户名
+     */
+    USER('U'),
+
+    /**
+     * 单个会话被注销，键为token的jti
+     */
+    SESSION('S'),
+
+    /**
+     * API key被吊销，键为key的SHA-256哈希
+     */
+    API_KEY('K');
+
+    private final char code;
+
+    InvalidationTopic(char code) {
+        this.code = code;
+    }
+
+    // 消息中使用的单字符编码
+    char code() {
+        return code;
+    }
+
+    static InvalidationTopic fromCode(char code) {
+        for (InvalidationTopic topic : values()) {
+            if (topic.code == code) {
+                return topic;
+            }
+        }
+        return null;
+    }
+}
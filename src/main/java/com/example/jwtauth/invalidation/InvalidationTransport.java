@@ -0,0 +1,45 @@
+package com.example.jwtauth.invalidation;
+
+/**
+ * 失效通知的传输方式
+ * 实现由配置invalidation.transport选择：
+ * - local：进程内传输（默认），单节点部署和测试使用
+ * - postgres：通过现有数据源的PostgreSQL LISTEN/NOTIFY在节点间广播
+ */
+public interface InvalidationTransport {
+
+    /**
+     * 开始接收其他节点（包括本节点）发出的消息
+     */
+    void start(Receiver receiver);
+
+    /**
+     * 广播一条消息
+     * @param payload 编码后的消息，长度不超过maxPayloadLength
+     */
+    void send(String payload) throws Exception;
+
+    /**
+     * 单条消息的最大长度（字符）
+     */
+    int maxPayloadLength();
+
+    /**
+     * 停止接收
+     */
+    default void stop() {
+    }
+
+    /**
+     * 消息接收方
+     */
+    interface Receiver {
+
+        void onMessage(String payload);
+
+        /**
+         * 可能丢失了消息（如监听连接断开后重连），接收方应清空全部缓存
+         */
+        void onReset();
+    }
+}
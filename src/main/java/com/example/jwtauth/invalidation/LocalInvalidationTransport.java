@@ -0,0 +1,37 @@
+package com.example.jwtauth.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内传输
+ * 消息在send调用线程中同步交给所有接收方；多个InvalidationBus共用同一个实例时可以模拟多个节点
+ */
+@Component
+@ConditionalOnProperty(prefix = "invalidation", name = "transport", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+    private static final int MAX_PAYLOAD_LENGTH = 8000;
+
+    private final List<Receiver> receivers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void start(Receiver receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void send(String payload) {
+        for (Receiver receiver : receivers) {
+            receiver.onMessage(payload);
+        }
+    }
+
+    @Override
+    public int maxPayloadLength() {
+        return MAX_PAYLOAD_LENGTH;
+    }
+}
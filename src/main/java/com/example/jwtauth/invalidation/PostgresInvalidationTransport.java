@@ -0,0 +1,139 @@
+/**
+ * PostgreSQL LISTEN/NOTIFY传输详解：
+ *
+ * 1. 发送：
+ *    - 通过连接池执行SELECT pg_notify(channel, payload)，一条消息一次往返
+ *    - NOTIFY的载荷上限为8000字节，总线按maxPayloadLength拆分消息
+ *
+ * 2. 接收：
+ *    - 后台线程用DriverManager按spring.datasource的地址和账号单独建立一个连接专门用于LISTEN，
+ *      不占用连接池（prod中连接池大小固定），连接关闭时会话结束，LISTEN随之失效，不会残留在池中的连接上
+ *    - 用PGConnection.getNotifications(timeout)阻塞等待通知，没有通知时不产生数据库流量
+ *    - 连接断开后按退避间隔重连；重连成功时通知总线重置，因为断开期间的消息已经丢失
+ *
+ * 3. 本节点发出的通知也会被本节点收到，由总线按节点ID过滤
+ */
+
+package com.example.jwtauth.invalidation;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+@Component
+@ConditionalOnProperty(prefix = "invalidation", name = "transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresInvalidationTransport.class);
+
+    // NOTIFY载荷上限8000字节，留出余量；消息内容都是ASCII，字符数等于字节数
+    private static final int MAX_PAYLOAD_LENGTH = 7900;
+
+    private static final int POLL_TIMEOUT_MS = 1000;
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30000L;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+
+    private volatile boolean running;
+    private volatile Thread listener;
+
+    public PostgresInvalidationTransport(DataSourceProperties dataSourceProperties,
+                                         JdbcTemplate jdbcTemplate,
+                                         @Value("${invalidation.channel:cache_invalidation}") String channel) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+        this.url = dataSourceProperties.determineUrl();
+        this.username = dataSourceProperties.determineUsername();
+        this.password = dataSourceProperties.determinePassword();
+        this.jdbcTemplate = jdbcTemplate;
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        running = true;
+        Thread thread = new Thread(() -> listenLoop(receiver), "invalidation-listener");
+        thread.setDaemon(true);
+        listener = thread;
+        thread.start();
+    }
+
+    @Override
+    public void send(String payload) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, payload);
+    }
+
+    @Override
+    public int maxPayloadLength() {
+        return MAX_PAYLOAD_LENGTH;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = listener;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listenLoop(Receiver receiver) {
+        long delay = 1000L;
+        boolean connectedBefore = false;
+        while (running) {
+            // 专用连接，关闭时物理断开，不归还连接池
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                if (connectedBefore) {
+                    // 断开期间可能有消息丢失
+                    receiver.onReset();
+                }
+                connectedBefore = true;
+                delay = 1000L;
+                log.info("Listening for cache invalidations on channel {}", channel);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receiver.onMessage(notification.getParameter());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener disconnected, retrying in {} ms: {}", delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * JSON日志格式
+ *
+ * 每个日志事件输出为一行JSON，供日志采集系统直接解析：
+ *   {"timestamp":"...","level":"WARN","thread":"...","logger":"...","message":"...","requestId":"...","exception":"..."}
+ * - MDC中的所有键（如requestId）作为顶层字段输出
+ * - 有异常时exception为完整堆栈
+ *
+ * 在logback-spring.xml的prod配置中使用，由AsyncAppender在后台线程调用，不占用请求线程
+ */
+
+package com.example.jwtauth.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.LayoutBase;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class JsonLayout extends LayoutBase<ILoggingEvent> {
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        StringBuilder out = new StringBuilder(256);
+        out.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(event.getTimeStamp())).append('"');
+        out.append(",\"level\":\"").append(event.getLevel()).append('"');
+        appendField(out, "thread", event.getThreadName());
+        appendField(out, "logger", event.getLoggerName());
+        appendField(out, "message", event.getFormattedMessage());
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null) {
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                appendField(out, entry.getKey(), entry.getValue());
+            }
+        }
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            appendField(out, "exception", ThrowableProxyUtil.asString(throwable));
+        }
+        out.append('}').append(CoreConstants.LINE_SEPARATOR);
+        return out.toString();
+    }
+
+    private static void appendField(StringBuilder out, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append(',');
+        appendString(out, name);
+        out.append(':');
+        appendString(out, value);
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * 请求ID过滤器
+ *
+ * 职责：
+ * 1. 在所有过滤器之前执行，为每个请求确定请求ID：
+ *    优先使用调用方的X-Request-ID，其次使用W3C traceparent中的trace-id，都没有时生成一个
+ * 2. 请求ID放入MDC（键requestId），之后的过滤器、控制器、服务和异常处理的日志都带有该ID
+ * 3. 在响应头X-Request-ID中返回请求ID，错误响应体中也带有该ID，便于客户端报告问题时关联日志
+ *
+ * 调用方传入的ID只接受不超过64个字符的字母、数字和 . _ - ，其他值一律重新生成，防止日志注入
+ */
+
+package com.example.jwtauth.logging;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestIdFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Request-ID";
+
+    public static final String MDC_KEY = "requestId";
+
+    private static final String TRACEPARENT_HEADER = "traceparent";
+
+    // 错误分发（sendError之后转到/error）时沿用原请求的ID
+    private static final String ATTRIBUTE = RequestIdFilter.class.getName() + ".requestId";
+
+    private static final int MAX_LENGTH = 64;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 当前线程正在处理的请求ID，不在请求线程中时为null
+     */
+    public static String currentRequestId() {
+        return MDC.get(MDC_KEY);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String requestId = (String) request.getAttribute(ATTRIBUTE);
+        if (requestId == null) {
+            requestId = resolve(request);
+            request.setAttribute(ATTRIBUTE, requestId);
+            response.setHeader(HEADER, requestId);
+        }
+
+        MDC.put(MDC_KEY, requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterErrorDispatch() {
+        return false;
+    }
+
+    private static String resolve(HttpServletRequest request) {
+        String requestId = request.getHeader(HEADER);
+        if (isValid(requestId)) {
+            return requestId;
+        }
+        // traceparent格式：00-<32位trace-id>-<16位parent-id>-<2位flags>
+        String traceparent = request.getHeader(TRACEPARENT_HEADER);
+        if (traceparent != null && traceparent.length() >= 35 && traceparent.charAt(2) == '-') {
+            String traceId = traceparent.substring(3, 35);
+            if (isHex(traceId)) {
+                return traceId;
+            }
+        }
+        return generate();
+    }
+
+    static boolean isValid(String requestId) {
+        if (requestId == null || requestId.isEmpty() || requestId.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 16位十六进制随机ID；请求ID只用于关联日志，不需要UUID的SecureRandom开销
+    static String generate() {
+        long bits = ThreadLocalRandom.current().nextLong();
+        char[] chars = new char[16];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = HEX[(int) (bits & 0xF)];
+            bits >>>= 4;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * 采样日志
+ *
+ * 用于高频的失败日志（无效token、登录失败、权限拒绝等）：
+ * - 每个键（通常是失败原因或异常类型）在每个时间窗口内只输出前burst条
+ * - 超出的日志只计数；下一个窗口第一次输出时附带一条汇总，说明上个窗口被抑制的条数
+ * - 日志级别未启用时直接返回，不做格式化
+ *
+ * 遭受无效token攻击时，日志量由键的数量和burst决定，而不是请求量
+ */
+
+package com.example.jwtauth.logging;
+
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class SampledLogger {
+
+    // 键的数量上限，超出后新键共用同一个窗口，防止键本身失控
+    private static final int MAX_KEYS = 256;
+
+    private static final String OVERFLOW_KEY = "other";
+
+    private final Logger logger;
+    private final int burst;
+    private final long intervalNanos;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param logger 实际输出的日志
+     * @param burst 每个键在每个时间窗口内最多输出的条数
+     * @param intervalMs 时间窗口长度（毫秒）
+     */
+    public SampledLogger(Logger logger, int burst, long intervalMs) {
+        this.logger = logger;
+        this.burst = burst;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    }
+
+    public void info(String key, String format, Object... args) {
+        if (logger.isInfoEnabled()) {
+            long suppressed = acquire(key, System.nanoTime());
+            if (suppressed >= 0) {
+                logger.info(format, args);
+                reportSuppressed(key, suppressed);
+            }
+        }
+    }
+
+    public void warn(String key, String format, Object... args) {
+        if (logger.isWarnEnabled()) {
+            long suppressed = acquire(key, System.nanoTime());
+            if (suppressed >= 0) {
+                logger.warn(format, args);
+                reportSuppressed(key, suppressed);
+            }
+        }
+    }
+
+    /**
+     * 输出错误日志，最后一个参数为异常时带堆栈
+     */
+    public void error(String key, String format, Object... args) {
+        if (logger.isErrorEnabled()) {
+            long suppressed = acquire(key, System.nanoTime());
+            if (suppressed >= 0) {
+                logger.error(format, args);
+                reportSuppressed(key, suppressed);
+            }
+        }
+    }
+
+    /**
+     * 为键申请一次输出
+     * @return 可以输出时返回上个窗口被抑制的条数（通常为0），需要抑制时返回-1
+     */
+    long acquire(String key, long nowNanos) {
+        Window window = windows.get(key);
+        if (window == null) {
+            String windowKey = windows.size() < MAX_KEYS ? key : OVERFLOW_KEY;
+            window = windows.computeIfAbsent(windowKey, k -> new Window(nowNanos));
+        }
+        return window.acquire(nowNanos, burst, intervalNanos);
+    }
+
+    private void reportSuppressed(String key, long suppressed) {
+        if (suppressed > 0) {
+            logger.warn("Suppressed {} similar log messages for '{}' in the last {} ms",
+                suppressed, key, TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        }
+    }
+
+    private static final class Window {
+        private long start;
+        private int count;
+        private long suppressed;
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        synchronized long acquire(long now, int burst, long intervalNanos) {
+            long previouslySuppressed = 0;
+            if (now - start >= intervalNanos) {
+                previouslySuppressed = suppressed;
+                start = now;
+                count = 0;
+                suppressed = 0;
+            }
+            if (count < burst) {
+                count++;
+                return previouslySuppressed;
+            }
+            suppressed++;
+            return -1;
+        }
+    }
+}
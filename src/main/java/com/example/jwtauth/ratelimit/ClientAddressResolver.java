@@ -0,0 +1,117 @@
+/**
+ * 客户端地址解析
+ *
+ * 未认证请求按客户端地址限流。部署在代理或负载均衡之后时，连接的对端地址都是代理，
+ * 所有匿名客户端会共用一个令牌桶，因此需要从代理添加的转发头中取得真实地址：
+ * 1. 只有对端地址属于rate-limit.trusted-proxies时才读取rate-limit.client-ip-header，
+ *    否则客户端可以伪造该请求头
+ * 2. 转发头（如X-Forwarded-For）从右往左跳过可信代理，第一个不可信的地址就是客户端；
+ *    更左边的值由客户端自己提供，不可信
+ * 3. 没有配置请求头时直接使用对端地址
+ *
+ * 只对IP字面量做匹配，不做DNS解析；转发头中的异常值截断后原样作为限流键
+ */
+
+package com.example.jwtauth.ratelimit;
+
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@Component
+public class ClientAddressResolver {
+
+    // 转发头中单个地址的最大长度，IPv6字面量最长45个字符
+    private static final int MAX_ADDRESS_LENGTH = 64;
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final String header;
+    private final List<IpAddressMatcher> trustedProxies = new ArrayList<>();
+
+    public ClientAddressResolver(RateLimitProperties properties) {
+        String configured = properties.getClientIpHeader();
+        this.header = configured == null || configured.trim().isEmpty() ? null : configured.trim();
+        for (String proxy : properties.getTrustedProxies()) {
+            if (proxy != null && !proxy.trim().isEmpty()) {
+                trustedProxies.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+    }
+
+    /**
+     * 解析请求的客户端地址
+     */
+    public String resolve(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (header == null || !isTrusted(remoteAddress)) {
+            return remoteAddress;
+        }
+        String forwarded = request.getHeader(header);
+        if (forwarded == null || forwarded.isEmpty()) {
+            return remoteAddress;
+        }
+
+        String[] hops = forwarded.split(",");
+        String leftmost = null;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            if (!isTrusted(hop)) {
+                return truncate(hop);
+            }
+            leftmost = hop;
+        }
+        // 整条链都是可信代理时取最左边的地址
+        return leftmost == null ? remoteAddress : leftmost;
+    }
+
+    private boolean isTrusted(String address) {
+        if (address == null || !isIpLiteral(address)) {
+            return false;
+        }
+        for (IpAddressMatcher matcher : trustedProxies) {
+            if (matcher.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // IPv4点分十进制或含冒号的IPv6字面量，避免IpAddressMatcher对主机名做DNS解析
+    private static boolean isIpLiteral(String address) {
+        if (address.isEmpty() || address.length() > MAX_ADDRESS_LENGTH) {
+            return false;
+        }
+        if (address.indexOf(':') >= 0) {
+            for (int i = 0; i < address.length(); i++) {
+                char c = address.charAt(i);
+                boolean valid = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                        || c == '.' || c == ':';
+                if (!valid) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!IPV4.matcher(address).matches()) {
+            return false;
+        }
+        for (String octet : address.split("\\.")) {
+            if (Integer.parseInt(octet) > 255) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String truncate(String address) {
+        return address.length() <= MAX_ADDRESS_LENGTH ? address : address.substring(0, MAX_ADDRESS_LENGTH);
+    }
+}
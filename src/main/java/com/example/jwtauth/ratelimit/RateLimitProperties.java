@@ -0,0 +1,51 @@
+package com.example.jwtauth.ratelimit;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 请求限流配置（rate-limit.*）
+ *
+ * 示例：
+ * rate-limit:
+ *   rules:
+ *     - pattern: /api/auth/login
+ *       limits: { ANONYMOUS: 20 }
+ *     - pattern: /**
+ *       limits: { USER: 600, ADMIN: 6000, default: 300 }
+ *
+ * 规则按顺序匹配请求路径，第一条匹配的规则生效；规则中没有对应配额的请求不限流。
+ */
+@Data
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    // 未认证请求（按客户端地址计数）使用的配额名称
+    public static final String ANONYMOUS = "ANONYMOUS";
+    // 已认证但没有匹配角色（如API key）时使用的配额名称
+    public static final String DEFAULT = "default";
+
+    private boolean enabled = true;         // 是否启用限流
+    private int maxTrackedBuckets = 100000; // 最多同时跟踪的令牌桶数量
+    private long idleEvictionMs = 600000;   // 令牌桶超过该时间未使用即被淘汰
+    private String clientIpHeader;          // 代理写入客户端地址的请求头（如X-Forwarded-For），为空时使用连接的对端地址
+    private List<String> trustedProxies = new ArrayList<>(); // 可信代理的地址或CIDR，只有来自它们的请求才读取clientIpHeader
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Rule {
+        private String pattern;                             // Ant风格的路径模式
+        private long periodSeconds = 60;                    // 配额的时间窗口（秒）
+        private Map<String, Long> limits = new HashMap<>(); // 角色名（或ANONYMOUS、default） -> 每个时间窗口的请求数
+    }
+}
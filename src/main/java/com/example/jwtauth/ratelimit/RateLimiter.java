@@ -0,0 +1,197 @@
+/**
+ * 请求限流器详解：
+ *
+ * 1. 配额：
+ *    - 按请求路径匹配RateLimitProperties中的规则，第一条匹配的规则生效
+ *    - 已认证请求取主体各角色配额中最大的一个，没有匹配角色时使用default配额
+ *    - 未认证请求使用ANONYMOUS配额，按客户端地址计数
+ *    - 规则中没有对应配额时不限流
+ *
+ * 2. 令牌桶存储：
+ *    - 每个（规则, 配额, 主体）一个TokenBucket，保存在ConcurrentHashMap中
+ *    - 定时任务每隔rate-limit.eviction-interval-ms淘汰超过idle-eviction-ms未使用的桶，以及已经装满的桶
+ *      （装满的桶与新建的桶状态相同，淘汰不会放宽限额）
+ *    - 桶数量达到max-tracked-buckets时先同步淘汰一次；仍然已满时拒绝新主体的请求（已有桶的主体不受影响），
+ *      并计入ratelimit.untracked指标。不能放行，否则不断更换主体即可绕过限流；内存占用始终有上限
+ *
+ * 3. 开销：
+ *    - 每个请求一次规则匹配、一次哈希查找和一次对本主体令牌桶的短暂加锁，不同主体之间没有竞争
+ */
+
+package com.example.jwtauth.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // 保证同一时间只有一个线程在请求路径上执行淘汰
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Counter untracked;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.untracked = meterRegistry.counter("ratelimit.untracked");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 为一次请求消耗配额
+     * @param path 请求路径
+     * @param principalKey 主体标识（租户和用户名，或客户端地址）
+     * @param roles 主体的角色名，未认证请求为null
+     * @return 限流结果，不限流的请求返回null
+     */
+    public Decision tryAcquire(String path, String principalKey, Collection<String> roles) {
+        List<RateLimitProperties.Rule> rules = properties.getRules();
+        for (int i = 0; i < rules.size(); i++) {
+            RateLimitProperties.Rule rule = rules.get(i);
+            if (pathMatcher.match(rule.getPattern(), path)) {
+                Long limit = quota(rule.getLimits(), roles);
+                return limit == null || limit <= 0 ? null : acquire(i, rule, limit, principalKey);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 淘汰长时间未使用或已经装满的令牌桶
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        evict(System.nanoTime());
+    }
+
+    int trackedBuckets() {
+        return buckets.size();
+    }
+
+    private Decision acquire(int ruleIndex, RateLimitProperties.Rule rule, long limit, String principalKey) {
+        long now = System.nanoTime();
+        long periodNanos = rule.getPeriodSeconds() * NANOS_PER_SECOND;
+        // 配额也作为键的一部分，主体的角色变化后使用新的桶
+        String key = ruleIndex + "|" + limit + "|" + principalKey;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= properties.getMaxTrackedBuckets() && evicting.compareAndSet(false, true)) {
+                try {
+                    evict(now);
+                } finally {
+                    evicting.set(false);
+                }
+            }
+            if (buckets.size() >= properties.getMaxTrackedBuckets()) {
+                // 无法跟踪新主体时拒绝，等待下一次淘汰腾出空间
+                untracked.increment();
+                meterRegistry.counter("ratelimit.rejected", "rule", rule.getPattern()).increment();
+                return new Decision(false, limit, rule.getPeriodSeconds(), 0, rule.getPeriodSeconds(),
+                        rule.getPeriodSeconds());
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(limit, limit, periodNanos, now));
+        }
+
+        boolean allowed = bucket.tryConsume(now);
+        if (!allowed) {
+            meterRegistry.counter("ratelimit.rejected", "rule", rule.getPattern()).increment();
+        }
+        return new Decision(allowed, limit, rule.getPeriodSeconds(), bucket.getAvailable(now),
+                toSeconds(bucket.nanosUntilFull(now)),
+                allowed ? 0 : Math.max(1, toSeconds(bucket.nanosUntilNextToken(now))));
+    }
+
+    private void evict(long now) {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleEvictionMs());
+        buckets.values().removeIf(bucket ->
+                now - bucket.getLastAccessNanos() > idleNanos || bucket.nanosUntilFull(now) == 0);
+    }
+
+    // 未认证请求使用ANONYMOUS配额；已认证请求取各角色中最大的配额，没有时使用default
+    private static Long quota(Map<String, Long> limits, Collection<String> roles) {
+        if (roles == null) {
+            return limits.get(RateLimitProperties.ANONYMOUS);
+        }
+        Long quota = null;
+        for (String role : roles) {
+            Long limit = limits.get(role);
+            if (limit != null && (quota == null || limit > quota)) {
+                quota = limit;
+            }
+        }
+        return quota != null ? quota : limits.get(RateLimitProperties.DEFAULT);
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    }
+
+    /**
+     * 一次请求的限流结果，用于生成RateLimit-*响应头
+     */
+    public static final class Decision {
+        private final boolean allowed;
+        private final long limit;
+        private final long windowSeconds;
+        private final long remaining;
+        private final long resetSeconds;
+        private final long retryAfterSeconds;
+
+        Decision(boolean allowed, long limit, long windowSeconds, long remaining, long resetSeconds,
+                 long retryAfterSeconds) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.windowSeconds = windowSeconds;
+            this.remaining = remaining;
+            this.resetSeconds = resetSeconds;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+
+        // 配额策略，格式为 "<limit>;w=<window>"
+        public String getPolicy() {
+            return limit + ";w=" + windowSeconds;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        // 距离配额完全恢复的秒数
+        public long getResetSeconds() {
+            return resetSeconds;
+        }
+
+        // 被拒绝时需要等待的秒数
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.jwtauth.ratelimit;
+
+/**
+ * 令牌桶
+ *
+ * 桶容量为capacity，每隔refillPeriodNanos补充refillTokens个令牌（按时间连续补充，不是整批补充）。
+ * 每个请求消耗一个令牌，桶空时拒绝。令牌数在访问时按经过的时间惰性计算，不需要后台线程。
+ *
+ * 每个桶只属于一个主体（API key、用户等），同一主体的并发请求才会竞争同一把锁，
+ * 临界区只有几次算术运算。时间参数由调用方传入（System.nanoTime()），便于测试。
+ */
+public final class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private volatile long lastAccessNanos;
+
+    public TokenBucket(long capacity, long refillTokens, long refillPeriodNanos, long nowNanos) {
+        if (capacity <= 0 || refillTokens <= 0 || refillPeriodNanos <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) refillTokens / refillPeriodNanos;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /**
+     * 每分钟补充limit个令牌、容量为limit的桶
+     */
+    public static TokenBucket perMinute(long limit, long nowNanos) {
+        return new TokenBucket(limit, limit, 60_000_000_000L, nowNanos);
+    }
+
+    /**
+     * 尝试消耗一个令牌
+     * @return true如果消耗成功，false表示已超出限额
+     */
+    public synchronized boolean tryConsume(long nowNanos) {
+        refill(nowNanos);
+        lastAccessNanos = nowNanos;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前剩余的完整令牌数
+     */
+    public synchronized long getAvailable(long nowNanos) {
+        refill(nowNanos);
+        return (long) tokens;
+    }
+
+    /**
+     * 距离下一个令牌可用的时间，已有令牌时为0
+     */
+    public synchronized long nanosUntilNextToken(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * 距离桶重新装满的时间
+     */
+    public synchronized long nanosUntilFull(long nowNanos) {
+        refill(nowNanos);
+        return (long) Math.ceil((capacity - tokens) / tokensPerNano);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    // 最后一次消耗令牌的时间，用于淘汰长时间未使用的桶
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.jwtauth.repository;
+
+import com.example.jwtauth.entity.ApiKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
+    Optional<ApiKey> findByKeyHash(String keyHash);
+
+    List<ApiKey> findByTenantIdAndUsernameOrderByCreatedAtDesc(String tenantId, String username);
+
+    Optional<ApiKey> findByIdAndTenantIdAndUsername(Long id, String tenantId, String username);
+
+    @Transactional
+    @Modifying
+    @Query("update ApiKey k set k.revoked = true where k.id = :id and k.revoked = false")
+    int revokeById(@Param("id") Long id);
+}
@@ -0,0 +1,29 @@
+package com.example.jwtauth.repository;
+
+/**
+ * 认证所需的用户字段（接口投影）
+ * 每个角色一行，用户字段在各行中重复；没有角色时只有一行，role为null
+ * 查询结果是标量，不进入持久化上下文，没有脏检查和集合加载
+ */
+public interface UserAuthenticationRow {
+
+    Long getId();
+
+    String getTenantId();
+
+    String getUsername();
+
+    String getPassword();
+
+    String getEmail();
+
+    Boolean getEnabled();
+
+    Boolean getAccountNonExpired();
+
+    Boolean getAccountNonLocked();
+
+    Boolean getCredentialsNonExpired();
+
+    String getRole();
+}
@@ -2,12 +2,24 @@ package com.example.jwtauth.repository;
 
 import com.example.jwtauth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
-    boolean existsByUsername(String username);
-} 
\ No newline at end of file
+    Optional<User> findByTenantIdAndUsername(String tenantId, String username);
+    boolean existsByTenantIdAndUsername(String tenantId, String username);
+
+    // 认证只需要的字段和角色，一条连接查询取回，不加载User实体
+    @Query("select u.id as id, u.tenantId as tenantId, u.username as username, u.password as password, "
+            + "u.email as email, u.enabled as enabled, u.accountNonExpired as accountNonExpired, "
+            + "u.accountNonLocked as accountNonLocked, u.credentialsNonExpired as credentialsNonExpired, "
+            + "r as role "
+            + "from User u left join u.roles r where u.tenantId = :tenantId and u.username = :username")
+    List<UserAuthenticationRow> findAuthenticationRows(@Param("tenantId") String tenantId,
+                                                       @Param("username") String username);
+}
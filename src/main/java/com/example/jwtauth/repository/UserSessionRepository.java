@@ -0,0 +1,32 @@
+package com.example.jwtauth.repository;
+
+import com.example.jwtauth.entity.UserSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
+    Optional<UserSession> findByJti(String jti);
+
+    List<UserSession> findByTenantIdAndUsernameAndRevokedFalseAndExpiresAtAfter(String tenantId, String username, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update UserSession s set s.revoked = true where s.jti in :jtis")
+    int revokeByJtiIn(@Param("jtis") Collection<String> jtis);
+
+    @Transactional
+    @Modifying
+    @Query("update UserSession s set s.revoked = true "
+            + "where s.tenantId = :tenantId and s.username = :username and s.revoked = false")
+    int revokeAllByUsername(@Param("tenantId") String tenantId, @Param("username") String username);
+}
@@ -0,0 +1,36 @@
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.service.VerifiedApiKey;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * API key认证详情
+ * 保存key的ID、租户和作用域（权限掩码），权限检查与JWT认证一样只做位运算
+ */
+public class ApiKeyAuthenticationDetails extends WebAuthenticationDetails {
+
+    private final Long apiKeyId;
+    private final String tenantId;
+    private final long permissions;
+
+    public ApiKeyAuthenticationDetails(HttpServletRequest request, VerifiedApiKey apiKey) {
+        super(request);
+        this.apiKeyId = apiKey.getId();
+        this.tenantId = apiKey.getTenantId();
+        this.permissions = apiKey.getPermissions();
+    }
+
+    public Long getApiKeyId() {
+        return apiKeyId;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public long getPermissions() {
+        return permissions;
+    }
+}
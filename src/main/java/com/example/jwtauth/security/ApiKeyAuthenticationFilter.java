@@ -0,0 +1,82 @@
+/**
+ * API key认证过滤器
+ *
+ * 职责：
+ * 1. 从请求头（api-key.header，默认X-API-Key）读取API key，已经通过JWT认证的请求直接跳过
+ * 2. 通过ApiKeyService验证key，命中缓存时不访问数据库
+ * 3. 检查该key的每分钟请求上限，超出时返回429并带Retry-After
+ * 4. 按key所属租户设置TenantContextHolder，并以key的作用域作为权限设置认证信息
+ *
+ * 无效的key与无效的token一样只记录审计事件，请求以未认证身份继续，由安全规则拒绝。
+ */
+
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.audit.AuditEventType;
+import com.example.jwtauth.audit.AuditLogger;
+import com.example.jwtauth.service.ApiKeyService;
+import com.example.jwtauth.service.VerifiedApiKey;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+@Component
+public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ApiKeyService apiKeyService;
+
+    @Autowired
+    private AuditLogger auditLogger;
+
+    @Autowired
+    private ErrorResponseWriter errorResponseWriter;
+
+    @Value("${api-key.header:X-API-Key}")
+    private String apiKeyHeader;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String rawKey = request.getHeader(apiKeyHeader);
+        if (rawKey == null || rawKey.isEmpty() || SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        VerifiedApiKey apiKey = apiKeyService.verify(rawKey);
+        if (apiKey == null) {
+            auditLogger.record(AuditEventType.TOKEN_REJECTED, null, request, "invalid api key");
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (!apiKeyService.tryAcquire(apiKey, now)) {
+            response.setHeader("Retry-After", String.valueOf(apiKeyService.retryAfterSeconds(apiKey, now)));
+            errorResponseWriter.write(request, response, ErrorResponseWriter.TOO_MANY_REQUESTS);
+            return;
+        }
+
+        // key的租户优先于请求头，与token的签发者一样
+        TenantContextHolder.setTenantId(apiKey.getTenantId());
+        UsernamePasswordAuthenticationToken authentication =
+            new UsernamePasswordAuthenticationToken(apiKey.getUsername(), null, Collections.emptyList());
+        authentication.setDetails(new ApiKeyAuthenticationDetails(request, apiKey));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * 安全层错误响应写出器
+ *
+ * 职责：
+ * 1. 作为AuthenticationEntryPoint（未认证，401）和AccessDeniedHandler（无权限，403）
+ * 2. 供过滤器直接写出拒绝响应（限流429、未知租户400），代替response.sendError
+ *
+ * 性能考虑：
+ * - sendError会触发一次到/error的错误分发，请求再次经过整个过滤器链和DispatcherServlet，
+ *   攻击流量下拒绝请求的开销甚至超过正常请求
+ * - 响应体的固定部分（status、error、message和字段名）在启动时序列化为字节模板，
+ *   每个请求只拼接时间戳、路径和请求ID，不创建ErrorResponse，也不经过Jackson
+ * - 时间戳按毫秒缓存，同一毫秒内的拒绝响应共用同一份字节
+ *
+ * 响应体与GlobalExceptionHandler返回的ErrorResponse字段和顺序一致：
+ *   {"timestamp":"...","status":401,"error":"...","message":"...","path":"uri=/api/...","requestId":"..."}
+ */
+
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.logging.RequestIdFilter;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+@Component
+public class ErrorResponseWriter implements AuthenticationEntryPoint, AccessDeniedHandler {
+
+    public static final Template UNAUTHORIZED = new Template(HttpServletResponse.SC_UNAUTHORIZED,
+        "Unauthorized", "Full authentication is required to access this resource");
+
+    public static final Template FORBIDDEN = new Template(HttpServletResponse.SC_FORBIDDEN,
+        "Access denied", "Access is denied");
+
+    public static final Template TOO_MANY_REQUESTS = new Template(429,
+        "Too Many Requests", "Rate limit exceeded");
+
+    public static final Template UNKNOWN_TENANT = new Template(HttpServletResponse.SC_BAD_REQUEST,
+        "Bad Request", "Unknown tenant");
+
+    private static final String CONTENT_TYPE = "application/json";
+
+    private static final byte[] TIMESTAMP_PREFIX = ascii("{\"timestamp\":\"");
+    private static final byte[] REQUEST_ID_PREFIX = ascii("\",\"requestId\":\"");
+    private static final byte[] REQUEST_ID_NULL = ascii("\",\"requestId\":null}");
+    private static final byte[] END = ascii("\"}");
+
+    // 与ErrorResponse中LocalDateTime的JSON格式一致，精确到毫秒
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private volatile CachedTimestamp timestamp = new CachedTimestamp(Long.MIN_VALUE, new byte[0]);
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException {
+        write(request, response, UNAUTHORIZED);
+    }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response,
+                       AccessDeniedException accessDeniedException) throws IOException {
+        write(request, response, FORBIDDEN);
+    }
+
+    /**
+     * 按模板写出错误响应；响应已提交时不做任何事
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, Template template) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+        byte[] body = body(template, request.getRequestURI(), RequestIdFilter.currentRequestId(),
+            System.currentTimeMillis());
+        response.setStatus(template.status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    byte[] body(Template template, String uri, String requestId, long nowMillis) {
+        byte[] time = timestamp(nowMillis);
+        byte[] path = jsonBytes("uri=" + (uri == null ? "" : uri));
+        byte[] id = requestId == null ? null : jsonBytes(requestId);
+
+        int length = TIMESTAMP_PREFIX.length + time.length + template.middle.length + path.length
+            + (id == null ? REQUEST_ID_NULL.length : REQUEST_ID_PREFIX.length + id.length + END.length);
+        byte[] body = new byte[length];
+        int offset = copy(TIMESTAMP_PREFIX, body, 0);
+        offset = copy(time, body, offset);
+        offset = copy(template.middle, body, offset);
+        offset = copy(path, body, offset);
+        if (id == null) {
+            copy(REQUEST_ID_NULL, body, offset);
+        } else {
+            offset = copy(REQUEST_ID_PREFIX, body, offset);
+            offset = copy(id, body, offset);
+            copy(END, body, offset);
+        }
+        return body;
+    }
+
+    private byte[] timestamp(long nowMillis) {
+        CachedTimestamp cached = timestamp;
+        if (cached.millis != nowMillis) {
+            String formatted = TIMESTAMP_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), zone));
+            cached = new CachedTimestamp(nowMillis, ascii(formatted));
+            timestamp = cached;
+        }
+        return cached.bytes;
+    }
+
+    private static int copy(byte[] source, byte[] target, int offset) {
+        System.arraycopy(source, 0, target, offset, source.length);
+        return offset + source.length;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // JSON字符串内容（不含两侧引号）的UTF-8字节；路径和请求ID通常无需转义，直接编码
+    private static byte[] jsonBytes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                return escape(value).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 一种错误响应的固定部分：从时间戳之后到path的值之前
+     */
+    public static final class Template {
+
+        private final int status;
+        private final byte[] middle;
+
+        private Template(int status, String error, String message) {
+            this.status = status;
+            this.middle = ("\",\"status\":" + status
+                + ",\"error\":\"" + escape(error)
+                + "\",\"message\":\"" + escape(message)
+                + "\",\"path\":\"").getBytes(StandardCharsets.UTF_8);
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private static final class CachedTimestamp {
+
+        private final long millis;
+        private final byte[] bytes;
+
+        private CachedTimestamp(long millis, byte[] bytes) {
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+    }
+}
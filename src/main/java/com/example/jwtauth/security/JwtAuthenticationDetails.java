@@ -0,0 +1,50 @@
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.util.TokenClaims;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Date;
+
+/**
+ * JWT认证详情
+ * 在Web认证详情的基础上保存已验签token的声明，控制器无需再次解析token
+ * 权限掩码在认证时确定，之后的权限检查只做位运算（见PermissionChecker）
+ */
+public class JwtAuthenticationDetails extends WebAuthenticationDetails {
+
+    private final String tokenId;
+    private final Date issuedAt;
+    private final Date expiration;
+    private final String tenantId;
+    private final long permissions;
+
+    public JwtAuthenticationDetails(HttpServletRequest request, TokenClaims claims, long permissions) {
+        super(request);
+        this.tokenId = claims.getId();
+        this.issuedAt = claims.getIssuedAt();
+        this.expiration = claims.getExpiration();
+        this.tenantId = claims.getTenantId();
+        this.permissions = permissions;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public long getPermissions() {
+        return permissions;
+    }
+}
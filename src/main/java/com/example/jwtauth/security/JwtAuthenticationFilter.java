@@ -4,19 +4,30 @@
  * 职责：
  * 1. 从请求头中提取JWT token
  * 2. 验证token的有效性
- * 3. 设置用户认证信息到Spring Security上下文
+ * 3. 按token的签发者确定租户，在该租户内加载用户
+ * 4. 检查token对应的会话是否仍然有效（未注销、未被挤下线）
+ * 5. 设置用户认证信息到Spring Security上下文，权限掩码为token中的掩码与用户当前角色权限的交集，
+ *    旧token（没有掩码）按用户当前角色计算
+ *
+ * 无效token是客户端问题，日志只记录异常类型和消息（不带堆栈），并按异常类型采样
  */
 
 package com.example.jwtauth.security;
 
+import com.example.jwtauth.audit.AuditEventType;
+import com.example.jwtauth.audit.AuditLogger;
+import com.example.jwtauth.logging.SampledLogger;
+import com.example.jwtauth.service.SessionService;
+import com.example.jwtauth.tenant.TenantContextHolder;
 import com.example.jwtauth.util.JwtUtil;
+import com.example.jwtauth.util.TokenClaims;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -29,12 +40,22 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // 每种失败原因每分钟最多记录10条
+    private static final SampledLogger rejectionLog =
+        new SampledLogger(LoggerFactory.getLogger(JwtAuthenticationFilter.class), 10, 60_000);
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private AuditLogger auditLogger;
+
+    @Autowired
+    private SessionService sessionService;
+
     private UserDetailsService getUserDetailsService() {
         return applicationContext.getBean(UserDetailsService.class);
     }
@@ -50,8 +71,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 // 提取token（去掉"Bearer "前缀）
                 String jwt = authHeader.substring(7);
-                // 从token中提取用户名
-                String username = jwtUtil.extractUsername(jwt);
+                // 验签并解析token，后续校验复用解析结果
+                TokenClaims claims = jwtUtil.parseToken(jwt);
+                String username = claims.getSubject();
+                // token的租户优先于请求头，用户和会话都在该租户内查找
+                TenantContextHolder.setTenantId(claims.getTenantId());
 
                 // 如果用户名不为空且当前没有认证信息
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
@@ -59,23 +83,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     UserDetailsService userDetailsService = getUserDetailsService();
                     UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                     
-                    // 验证token是否有效
-                    if (jwtUtil.validateToken(jwt, userDetails)) {
+                    // 验证token是否有效，且对应的会话未被注销
+                    if (jwtUtil.validateToken(claims, userDetails) && sessionService.touch(claims.getId())) {
                         // 创建认证对象
                         UsernamePasswordAuthenticationToken authentication = 
                             new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
                         
-                        // 设置认证详情
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        // 设置认证详情：token中的掩码不能超出用户当前角色的权限，用户被降级后立即生效
+                        long userPermissions = Role.maskOfAuthorities(userDetails.getAuthorities());
+                        long permissions = claims.getPermissions() != null
+                            ? claims.getPermissions() & userPermissions
+                            : userPermissions;
+                        authentication.setDetails(new JwtAuthenticationDetails(request, claims, permissions));
                         
                         // 设置认证信息到上下文
                         SecurityContextHolder.getContext().setAuthentication(authentication);
+                    } else {
+                        auditLogger.record(AuditEventType.TOKEN_REJECTED, username, request, "invalid token or session");
+                        rejectionLog.info("invalid token or session", "Rejected token for user {}: invalid token or session", username);
                     }
                 }
             }
         } catch (Exception e) {
-            logger.error("Cannot set user authentication: {}", e);
+            auditLogger.record(AuditEventType.TOKEN_REJECTED, null, request, e.getClass().getSimpleName());
+            rejectionLog.warn(e.getClass().getSimpleName(), "Cannot set user authentication: {}: {}",
+                e.getClass().getSimpleName(), e.getMessage());
         }
 
         // 继续过滤器链
@@ -0,0 +1,64 @@
+package com.example.jwtauth.security;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 权限
+ *
+ * 每个权限对应权限掩码(long)中的一位，位序号即声明顺序(ordinal)。
+ * 已签发的token中保存的是掩码，新权限只能追加在末尾，不能调整或删除已有权限的顺序。
+ * CBOR编码的紧凑令牌只支持非负整数，因此最多63个权限。
+ */
+public enum Permission {
+    PROFILE_READ,     // 查看自己的用户信息
+    SESSION_READ,     // 查看自己的活跃会话
+    SESSION_REVOKE,   // 注销自己的会话
+    API_ACCESS,       // 访问受保护的业务接口
+    AUDIT_READ,       // 查看审计日志
+    USER_READ,        // 查看其他用户
+    USER_WRITE,       // 修改其他用户
+    API_KEY_MANAGE;   // 创建和吊销自己的API key
+
+    private static final int MAX_PERMISSIONS = 63;
+
+    static {
+        if (values().length > MAX_PERMISSIONS) {
+            throw new IllegalStateException("At most " + MAX_PERMISSIONS + " permissions are supported");
+        }
+    }
+
+    private final long mask = 1L << ordinal();
+
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * 掩码中是否包含该权限
+     */
+    public boolean isGrantedBy(long permissions) {
+        return (permissions & mask) != 0;
+    }
+
+    /**
+     * 掩码中包含的权限名称
+     */
+    public static List<String> namesOf(long permissions) {
+        List<String> names = new ArrayList<>();
+        for (Permission permission : values()) {
+            if (permission.isGrantedBy(permissions)) {
+                names.add(permission.name());
+            }
+        }
+        return names;
+    }
+
+    public static long maskOf(Permission... permissions) {
+        long mask = 0;
+        for (Permission permission : permissions) {
+            mask |= permission.mask;
+        }
+        return mask;
+    }
+}
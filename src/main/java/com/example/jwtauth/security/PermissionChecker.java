@@ -0,0 +1,62 @@
+/**
+ * 权限检查
+ *
+ * 在方法安全注解中以bean名称"perm"引用：
+ *   @PreAuthorize("@perm.has(authentication, 'PROFILE_READ')")
+ *
+ * 检查方式：
+ * - JWT认证的权限掩码在过滤器中已经确定：token的pm声明与用户当前角色的权限掩码取交集
+ *   （没有pm声明时直接使用角色掩码），用户被降级后旧token的权限随之缩小；检查只是一次位运算
+ * - API key认证的权限掩码就是key的作用域
+ * - 其他认证（如测试中直接构造的认证）按ROLE_权限集合计算掩码
+ */
+
+package com.example.jwtauth.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+@Component("perm")
+public class PermissionChecker {
+
+    /**
+     * 当前认证是否拥有指定权限
+     * @param permission 权限名称，见Permission
+     * @throws IllegalArgumentException 权限名称未知时（注解写错应当尽早暴露）
+     */
+    public boolean has(Authentication authentication, String permission) {
+        return has(authentication, Permission.valueOf(permission));
+    }
+
+    public boolean has(Authentication authentication, Permission permission) {
+        return permission.isGrantedBy(permissionsOf(authentication));
+    }
+
+    /**
+     * 当前认证是否拥有指定权限中的任意一个
+     */
+    public boolean hasAny(Authentication authentication, String... permissions) {
+        long mask = 0;
+        for (String permission : permissions) {
+            mask |= Permission.valueOf(permission).mask();
+        }
+        return (permissionsOf(authentication) & mask) != 0;
+    }
+
+    /**
+     * 认证的权限掩码，未认证时为0
+     */
+    public static long permissionsOf(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return 0;
+        }
+        Object details = authentication.getDetails();
+        if (details instanceof JwtAuthenticationDetails) {
+            return ((JwtAuthenticationDetails) details).getPermissions();
+        }
+        if (details instanceof ApiKeyAuthenticationDetails) {
+            return ((ApiKeyAuthenticationDetails) details).getPermissions();
+        }
+        return Role.maskOfAuthorities(authentication.getAuthorities());
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * 请求限流过滤器
+ *
+ * 职责：
+ * 1. 在JWT和API key认证之后执行，按认证主体（租户+用户名）和角色选择配额；
+ *    未认证请求按客户端地址计数，地址由ClientAddressResolver解析（经可信代理时取转发头中的地址）
+ * 2. 通过RateLimiter消耗配额，超出时返回429并带Retry-After，响应体由ErrorResponseWriter直接写出
+ * 3. 在响应中返回RateLimit-Limit、RateLimit-Remaining、RateLimit-Reset和RateLimit-Policy头
+ */
+
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.ratelimit.ClientAddressResolver;
+import com.example.jwtauth.ratelimit.RateLimiter;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private ClientAddressResolver clientAddressResolver;
+
+    @Autowired
+    private ErrorResponseWriter errorResponseWriter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!rateLimiter.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        RateLimiter.Decision decision;
+        if (authentication == null || !authentication.isAuthenticated()) {
+            decision = rateLimiter.tryAcquire(request.getServletPath(),
+                "ip:" + clientAddressResolver.resolve(request), null);
+        } else {
+            // 不同租户可以有同名用户，主体标识需要包含租户
+            decision = rateLimiter.tryAcquire(request.getServletPath(),
+                TenantContextHolder.getTenantId() + '\u0000' + authentication.getName(), roles(authentication));
+        }
+
+        if (decision != null) {
+            response.setHeader("RateLimit-Limit", String.valueOf(decision.getLimit()));
+            response.setHeader("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+            response.setHeader("RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+            response.setHeader("RateLimit-Policy", decision.getPolicy());
+            if (!decision.isAllowed()) {
+                response.setHeader("Retry-After", String.valueOf(decision.getRetryAfterSeconds()));
+                errorResponseWriter.write(request, response, ErrorResponseWriter.TOO_MANY_REQUESTS);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static List<String> roles(Authentication authentication) {
+        List<String> roles = new ArrayList<>(2);
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith(ROLE_PREFIX)) {
+                roles.add(name.substring(ROLE_PREFIX.length()));
+            }
+        }
+        return roles;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.jwtauth.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.example.jwtauth.security.Permission.*;
+
+/**
+ * 角色层级
+ *
+ * 每个角色继承上级角色的全部权限，再加上自己的权限：
+ *   USER    -> 查看资料、管理自己的会话和API key、访问业务接口
+ *   AUDITOR -> USER + 查看审计日志
+ *   ADMIN   -> AUDITOR + 查看/修改其他用户
+ *
+ * 角色展开后的权限掩码在类加载时计算一次，之后按角色名查表即可，不需要遍历层级。
+ * User.roles中保存的仍是角色名，未知的角色名不授予任何权限。
+ */
+public enum Role {
+    USER(null, PROFILE_READ, SESSION_READ, SESSION_REVOKE, API_ACCESS, API_KEY_MANAGE),
+    AUDITOR(USER, AUDIT_READ),
+    ADMIN(AUDITOR, USER_READ, USER_WRITE);
+
+    private static final String AUTHORITY_PREFIX = "ROLE_";
+
+    private static final Map<String, Role> BY_NAME = new HashMap<>();
+
+    static {
+        for (Role role : values()) {
+            BY_NAME.put(role.name(), role);
+        }
+    }
+
+    private final Role parent;
+    private final long permissions;
+
+    // 上级角色必须先声明，构造时其掩码已经计算完成
+    Role(Role parent, Permission... permissions) {
+        this.parent = parent;
+        this.permissions = (parent == null ? 0 : parent.permissions) | Permission.maskOf(permissions);
+    }
+
+    public Role getParent() {
+        return parent;
+    }
+
+    /**
+     * 展开后的权限掩码，包含所有上级角色的权限
+     */
+    public long getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * 按角色名查找
+     * @return 未知角色返回null
+     */
+    public static Role fromName(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+
+    /**
+     * 多个角色的权限掩码之和
+     */
+    public static long maskOf(Collection<String> roleNames) {
+        long mask = 0;
+        if (roleNames != null) {
+            for (String name : roleNames) {
+                Role role = fromName(name);
+                if (role != null) {
+                    mask |= role.permissions;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 由ROLE_前缀的权限集合计算权限掩码，用于token中没有掩码的认证
+     */
+    public static long maskOfAuthorities(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        if (authorities != null) {
+            for (GrantedAuthority authority : authorities) {
+                String name = authority.getAuthority();
+                Role role = name != null && name.startsWith(AUTHORITY_PREFIX)
+                        ? fromName(name.substring(AUTHORITY_PREFIX.length()))
+                        : null;
+                if (role != null) {
+                    mask |= role.permissions;
+                }
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * 租户过滤器
+ *
+ * 职责：
+ * 1. 从请求头（tenant.header，默认X-Tenant-ID）读取租户ID，未携带时为默认租户
+ * 2. 拒绝未知或已停用的租户（400）
+ * 3. 在请求处理期间把租户ID保存到TenantContextHolder，请求结束后清除
+ *
+ * 携带token的请求由JwtAuthenticationFilter按token的签发者覆盖租户，请求头只对登录、注册等公开接口有意义。
+ */
+
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.tenant.TenantContextHolder;
+import com.example.jwtauth.tenant.TenantRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@Component
+public class TenantFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private TenantRegistry tenantRegistry;
+
+    @Autowired
+    private ErrorResponseWriter errorResponseWriter;
+
+    @Value("${tenant.header:X-Tenant-ID}")
+    private String tenantHeader;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String tenantId = request.getHeader(tenantHeader);
+        if (tenantId == null || tenantId.isEmpty()) {
+            tenantId = TenantContextHolder.DEFAULT_TENANT;
+        }
+        if (!tenantRegistry.isActive(tenantId)) {
+            errorResponseWriter.write(request, response, ErrorResponseWriter.UNKNOWN_TENANT);
+            return;
+        }
+
+        TenantContextHolder.setTenantId(tenantId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TenantContextHolder.clear();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.jwtauth.service;
+
+import com.example.jwtauth.dto.ApiKeyRequest;
+import com.example.jwtauth.dto.ApiKeyResponse;
+
+import java.util.List;
+
+public interface ApiKeyService {
+
+    // 用户名都在当前请求的租户（TenantContextHolder）内解释
+
+    /**
+     * 创建API key
+     * @param username 所属用户
+     * @param ownerPermissions 创建者的权限掩码，key的作用域不能超出该范围
+     * @param request 名称、作用域、限流和有效期
+     * @return 包含key明文的信息，明文之后无法再次获取
+     * @throws IllegalArgumentException 作用域未知或为空、参数无效时
+     */
+    ApiKeyResponse create(String username, long ownerPermissions, ApiKeyRequest request);
+
+    /**
+     * 验证API key，命中缓存时不访问数据库
+     * @param rawKey 请求中携带的key明文
+     * @return 验证通过的key，不存在、已吊销、已过期或所属用户已停用时返回null
+     */
+    VerifiedApiKey verify(String rawKey);
+
+    /**
+     * 消耗key的一次请求配额
+     * @return false如果已超出该key的每分钟请求上限
+     */
+    boolean tryAcquire(VerifiedApiKey apiKey, long nowNanos);
+
+    /**
+     * 超出上限后需要等待的秒数
+     */
+    long retryAfterSeconds(VerifiedApiKey apiKey, long nowNanos);
+
+    /**
+     * 查询用户的全部API key（不含明文）
+     * @param username 用户名
+     * @return API key列表，最新创建的在前
+     */
+    List<ApiKeyResponse> findKeys(String username);
+
+    /**
+     * 吊销用户的一个API key
+     * @param username 用户名
+     * @param id key ID
+     * @return true如果key存在并被吊销
+     */
+    boolean revoke(String username, Long id);
+}
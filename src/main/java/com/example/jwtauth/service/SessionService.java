@@ -0,0 +1,53 @@
+package com.example.jwtauth.service;
+
+import com.example.jwtauth.dto.SessionResponse;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * 会话（设备）登记服务接口
+ * 登录时登记token，请求时检查token是否仍然有效
+ */
+public interface SessionService {
+
+    // 用户名都在当前请求的租户（TenantContextHolder）内解释
+
+
+    /**
+     * 登记新会话，超过每个用户的最大活跃会话数时注销最早的会话
+     * @param username 用户名
+     * @param request 登录请求，用于计算设备指纹
+     * @return 新会话的token ID(jti)
+     */
+    String register(String username, HttpServletRequest request);
+
+    /**
+     * 检查会话是否有效，并记录最后访问时间（延迟批量写入）
+     * @param jti token ID
+     * @return true如果会话存在且未注销
+     */
+    boolean touch(String jti);
+
+    /**
+     * 注销单个会话
+     * @param jti token ID
+     * @return true如果会话存在并被注销
+     */
+    boolean revoke(String jti);
+
+    /**
+     * 注销用户的所有会话（登出所有设备）
+     * @param username 用户名
+     * @return 注销的会话数
+     */
+    int revokeAll(String username);
+
+    /**
+     * 查询用户的活跃会话
+     * @param username 用户名
+     * @param currentJti 当前请求的token ID，用于标记当前设备
+     * @return 活跃会话列表
+     */
+    List<SessionResponse> findActiveSessions(String username, String currentJti);
+}
@@ -1,5 +1,6 @@
 package com.example.jwtauth.service;
 
+import com.example.jwtauth.dto.RegisterRequest;
 import com.example.jwtauth.entity.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
@@ -10,11 +11,12 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 public interface UserService extends UserDetailsService {
     
     /**
-     * 注册新用户
-     * @param user 用户信息
+     * 注册新用户，角色固定为USER，账号状态为默认值
+     * @param request 用户名、密码和邮箱
      * @return 注册成功的用户
+     * @throws com.example.jwtauth.exception.UsernameAlreadyExistsException 用户名已存在或正在被注册时
      */
-    User registerUser(User user);
+    User registerUser(RegisterRequest request);
 
     /**
      * 检查用户名是否已存在
@@ -0,0 +1,46 @@
+package com.example.jwtauth.service;
+
+/**
+ * 验证通过的API key
+ * 由ApiKeyService缓存并在请求间复用；权限是key的作用域与所属用户当前角色权限的交集，
+ * 缓存项重新加载时重新计算。限流令牌桶由ApiKeyService按key ID单独保存
+ */
+public final class VerifiedApiKey {
+
+    private final Long id;
+    private final String tenantId;
+    private final String username;
+    private final long permissions;
+    private final Integer rateLimitPerMinute;
+
+    public VerifiedApiKey(Long id, String tenantId, String username, long permissions, Integer rateLimitPerMinute) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.username = username;
+        this.permissions = permissions;
+        this.rateLimitPerMinute = rateLimitPerMinute;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * 每分钟请求上限，null表示不限制
+     */
+    public Integer getRateLimitPerMinute() {
+        return rateLimitPerMinute;
+    }
+}
@@ -0,0 +1,488 @@
+/**
+ * ApiKeyService实现类详解：
+ *
+ * 1. key格式与存储：
+ *    - key明文为 "ak_" + 32字节随机数的Base64URL编码，只在创建时返回一次
+ *    - 数据库表api_keys只保存key的SHA-256哈希，并对哈希建立唯一索引
+ *    - key本身是高熵随机数，不需要BCrypt这类慢哈希抵御字典攻击，一次SHA-256约一微秒
+ *    - 内存存储模式下没有数据库，key只保存在内存中
+ *
+ * 2. 验证缓存：
+ *    - 验证通过的key按哈希缓存在ConcurrentHashMap中，命中时只做一次哈希和一次查表
+ *    - 吊销key时立即移除本节点的缓存项，并通过InvalidationBus通知其他节点移除
+ *    - 缓存项超过api-key.cache-ttl-ms后重新查询一次数据库，只作为失效通知丢失时的兜底
+ *    - 缓存项数量达到api-key.cache-max-size时先移除失效的缓存项，仍然已满时按最后使用时间淘汰最久未用的一批，
+ *      新key总能进入缓存，不会退化为每次请求都查询数据库
+ *    - 不存在或已吊销的哈希也会短暂缓存（api-key.negative-cache-ttl-ms），随机伪造的key不会每次都查询数据库；
+ *      数量上限为api-key.negative-cache-max-size，达到时按过期时间淘汰最早的一批；API_KEY失效通知同样清除这些项
+ *
+ * 3. 所属用户：
+ *    - 加载和重新加载缓存项时同时查询所属用户，用户已停用、锁定或过期时key不可用
+ *    - key的权限是创建时的作用域与用户当前角色权限的交集，用户被降级后key的权限随之缩小
+ *    - 收到USER主题的失效通知时移除该用户的全部缓存项，下次验证重新查询
+ *
+ * 4. 限流与最后使用时间：
+ *    - 令牌桶按key ID单独保存，与验证缓存无关，缓存已满、缓存项被移除或重新加载都不影响限流
+ *    - 桶的数量上限为api-key.rate-limit-max-buckets；达到上限时先淘汰已装满的桶（与新建的桶状态相同），
+ *      仍然已满时淘汰最久未使用的桶
+ *    - 最后使用时间只更新内存并记入待写表，定时任务每隔api-key.last-used-flush-ms批量写入数据库
+ *    - 同一定时任务会清理长时间未使用的缓存项和已装满的令牌桶
+ */
+
+package com.example.jwtauth.service.impl;
+
+import com.example.jwtauth.dto.ApiKeyRequest;
+import com.example.jwtauth.dto.ApiKeyResponse;
+import com.example.jwtauth.entity.ApiKey;
+import com.example.jwtauth.entity.User;
+import com.example.jwtauth.invalidation.InvalidationBus;
+import com.example.jwtauth.invalidation.InvalidationTopic;
+import com.example.jwtauth.ratelimit.TokenBucket;
+import com.example.jwtauth.repository.ApiKeyRepository;
+import com.example.jwtauth.security.Permission;
+import com.example.jwtauth.security.Role;
+import com.example.jwtauth.service.ApiKeyService;
+import com.example.jwtauth.service.VerifiedApiKey;
+import com.example.jwtauth.store.UserStore;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+@Service
+public class ApiKeyServiceImpl implements ApiKeyService {
+
+    private static final String KEY_PREFIX = "ak_";
+    private static final int KEY_BYTES = 32;
+    // 列表中显示的明文前缀长度（含"ak_"）
+    private static final int DISPLAY_PREFIX_LENGTH = 11;
+    // 超过该长度的输入不可能是有效key，不计算哈希
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private static final String UPDATE_LAST_USED = "UPDATE api_keys SET last_used_at = ? WHERE id = ?";
+
+    // 同一key两次记录最后使用时间的最小间隔
+    private static final long LAST_USED_RESOLUTION_MS = 1000L;
+
+    // 缓存已满时一次淘汰的比例，避免每加入一项都扫描整个缓存
+    private static final int EVICTION_DIVISOR = 10;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    // MessageDigest不是线程安全的，每个线程复用一个实例
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserStore userStore;
+    private final InvalidationBus invalidationBus;
+    private final long cacheTtlMs;
+    private final int cacheMaxSize;
+    private final long negativeCacheTtlMs;
+    private final int negativeCacheMaxSize;
+    private final int rateLimitMaxBuckets;
+    private final int defaultRateLimit;
+
+    // 已验证的key，键为key的哈希
+    private final Map<String, CachedKey> cache = new ConcurrentHashMap<>();
+    // 不存在或已吊销的key，键为key的哈希，值为过期时间
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+    // 限流令牌桶，键为key ID
+    private final Map<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // 内存存储模式下的全部key，键为key的哈希
+    private final Map<String, ApiKey> memoryKeys = new ConcurrentHashMap<>();
+    private final AtomicLong memoryIds = new AtomicLong();
+    // 待写入的最后使用时间，键为key ID
+    private final Map<Long, Long> pendingLastUsed = new ConcurrentHashMap<>();
+
+    public ApiKeyServiceImpl(ObjectProvider<ApiKeyRepository> apiKeyRepository,
+                             ObjectProvider<JdbcTemplate> jdbcTemplate,
+                             UserStore userStore,
+                             InvalidationBus invalidationBus,
+                             @Value("${api-key.cache-ttl-ms:600000}") long cacheTtlMs,
+                             @Value("${api-key.cache-max-size:100000}") int cacheMaxSize,
+                             @Value("${api-key.negative-cache-ttl-ms:5000}") long negativeCacheTtlMs,
+                             @Value("${api-key.negative-cache-max-size:100000}") int negativeCacheMaxSize,
+                             @Value("${api-key.rate-limit-max-buckets:100000}") int rateLimitMaxBuckets,
+                             @Value("${api-key.default-rate-limit-per-minute:600}") int defaultRateLimit) {
+        // 内存存储模式下没有数据库，两者都为空
+        this.apiKeyRepository = apiKeyRepository.getIfAvailable();
+        this.jdbcTemplate = jdbcTemplate.getIfAvailable();
+        this.userStore = userStore;
+        this.invalidationBus = invalidationBus;
+        this.cacheTtlMs = cacheTtlMs;
+        this.cacheMaxSize = cacheMaxSize;
+        this.negativeCacheTtlMs = negativeCacheTtlMs;
+        this.negativeCacheMaxSize = negativeCacheMaxSize;
+        this.rateLimitMaxBuckets = rateLimitMaxBuckets;
+        this.defaultRateLimit = defaultRateLimit;
+        // 其他节点吊销的key，键为null时清空全部缓存
+        invalidationBus.subscribe(InvalidationTopic.API_KEY, hash -> {
+            if (hash == null) {
+                cache.clear();
+                misses.clear();
+            } else {
+                cache.remove(hash);
+                misses.remove(hash);
+            }
+        });
+        // 用户状态或角色变化（键为租户ID + '\0' + 用户名），该用户的key重新查询
+        invalidationBus.subscribe(InvalidationTopic.USER, userKey -> {
+            if (userKey == null) {
+                cache.clear();
+            } else {
+                cache.values().removeIf(cached -> userKey.equals(
+                        cached.key.getTenantId() + '\u0000' + cached.key.getUsername()));
+            }
+        });
+    }
+
+    @Override
+    public ApiKeyResponse create(String username, long ownerPermissions, ApiKeyRequest request) {
+        if (request.getName() == null || request.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("API key name is required");
+        }
+        // API key不能用来管理API key，作用域也不能超出创建者的权限
+        long scopes = parseScopes(request.getScopes(), ownerPermissions)
+                & ownerPermissions & ~Permission.API_KEY_MANAGE.mask();
+        if (scopes == 0) {
+            throw new IllegalArgumentException("API key must have at least one scope");
+        }
+        Integer rateLimit = request.getRateLimitPerMinute() == null ? defaultRateLimit : request.getRateLimitPerMinute();
+        if (rateLimit < 0) {
+            throw new IllegalArgumentException("Rate limit must not be negative");
+        }
+        if (request.getExpiresInDays() != null && request.getExpiresInDays() <= 0) {
+            throw new IllegalArgumentException("Expiry must be at least one day");
+        }
+
+        byte[] random = new byte[KEY_BYTES];
+        RANDOM.nextBytes(random);
+        String rawKey = KEY_PREFIX + ENCODER.encodeToString(random);
+        Instant now = Instant.now();
+        ApiKey apiKey = new ApiKey(null, hash(rawKey), rawKey.substring(0, DISPLAY_PREFIX_LENGTH),
+                TenantContextHolder.getTenantId(), username, request.getName().trim(), scopes,
+                rateLimit == 0 ? null : rateLimit, now,
+                request.getExpiresInDays() == null ? null : now.plus(Duration.ofDays(request.getExpiresInDays())),
+                null, false);
+
+        if (apiKeyRepository != null) {
+            apiKey = apiKeyRepository.save(apiKey);
+        } else {
+            apiKey.setId(memoryIds.incrementAndGet());
+            memoryKeys.put(apiKey.getKeyHash(), apiKey);
+        }
+        misses.remove(apiKey.getKeyHash());
+        return toResponse(apiKey, rawKey);
+    }
+
+    @Override
+    public VerifiedApiKey verify(String rawKey) {
+        if (rawKey == null || rawKey.length() > MAX_KEY_LENGTH || !rawKey.startsWith(KEY_PREFIX)) {
+            return null;
+        }
+        String keyHash = hash(rawKey);
+        long now = System.currentTimeMillis();
+        CachedKey cached = cache.get(keyHash);
+        if (cached == null || now - cached.loadedAt > cacheTtlMs) {
+            if (cached == null && isKnownMiss(keyHash, now)) {
+                return null;
+            }
+            cached = load(keyHash, cached, now);
+            if (cached == null) {
+                return null;
+            }
+        }
+        if (!cached.isActive(now)) {
+            return null;
+        }
+        // 只更新内存并记入待写表，由定时任务批量落库
+        if (now - cached.lastUsed >= LAST_USED_RESOLUTION_MS) {
+            cached.lastUsed = now;
+            pendingLastUsed.put(cached.key.getId(), now);
+        }
+        return cached.key;
+    }
+
+    @Override
+    public boolean tryAcquire(VerifiedApiKey apiKey, long nowNanos) {
+        TokenBucket bucket = bucket(apiKey, nowNanos);
+        return bucket == null || bucket.tryConsume(nowNanos);
+    }
+
+    @Override
+    public long retryAfterSeconds(VerifiedApiKey apiKey, long nowNanos) {
+        TokenBucket bucket = bucket(apiKey, nowNanos);
+        if (bucket == null) {
+            return 0;
+        }
+        return Math.max(1, (bucket.nanosUntilNextToken(nowNanos) + 999_999_999L) / 1_000_000_000L);
+    }
+
+    @Override
+    public List<ApiKeyResponse> findKeys(String username) {
+        String tenantId = TenantContextHolder.getTenantId();
+        List<ApiKey> keys = apiKeyRepository != null
+                ? apiKeyRepository.findByTenantIdAndUsernameOrderByCreatedAtDesc(tenantId, username)
+                : memoryKeys.values().stream()
+                        .filter(key -> key.getTenantId().equals(tenantId) && key.getUsername().equals(username))
+                        .sorted(Comparator.comparing(ApiKey::getCreatedAt).reversed())
+                        .collect(Collectors.toList());
+        return keys.stream().map(key -> toResponse(key, null)).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean revoke(String username, Long id) {
+        String tenantId = TenantContextHolder.getTenantId();
+        ApiKey apiKey = apiKeyRepository != null
+                ? apiKeyRepository.findByIdAndTenantIdAndUsername(id, tenantId, username).orElse(null)
+                : memoryKeys.values().stream()
+                        .filter(key -> key.getId().equals(id) && key.getTenantId().equals(tenantId)
+                                && key.getUsername().equals(username))
+                        .findFirst()
+                        .orElse(null);
+        if (apiKey == null || apiKey.isRevoked()) {
+            return false;
+        }
+        // 先更新数据库再移除缓存，避免并发的验证请求把吊销前的状态重新缓存
+        if (apiKeyRepository != null && apiKeyRepository.revokeById(id) == 0) {
+            return false;
+        }
+        apiKey.setRevoked(true);
+        cache.remove(apiKey.getKeyHash());
+        buckets.remove(id);
+        pendingLastUsed.remove(id);
+        invalidationBus.publish(InvalidationTopic.API_KEY, apiKey.getKeyHash());
+        return true;
+    }
+
+    /**
+     * 批量写入最后使用时间，并清理长时间未使用的缓存项和已装满的令牌桶
+     */
+    @Scheduled(fixedDelayString = "${api-key.last-used-flush-ms:30000}")
+    public void flushLastUsed() {
+        Map<Long, Long> flushed = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : pendingLastUsed.entrySet()) {
+            // 只有值未被并发更新时才移除，否则留到下一轮
+            if (pendingLastUsed.remove(entry.getKey(), entry.getValue())) {
+                flushed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!flushed.isEmpty() && jdbcTemplate != null) {
+            List<Object[]> rows = new ArrayList<>(flushed.size());
+            flushed.forEach((id, lastUsed) -> rows.add(new Object[]{new Timestamp(lastUsed), id}));
+            jdbcTemplate.batchUpdate(UPDATE_LAST_USED, rows);
+        } else if (!flushed.isEmpty()) {
+            for (ApiKey apiKey : memoryKeys.values()) {
+                Long lastUsed = flushed.get(apiKey.getId());
+                if (lastUsed != null) {
+                    apiKey.setLastUsedAt(Instant.ofEpochMilli(lastUsed));
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> !cached.isActive(now) || now - cached.lastUsed > cacheTtlMs);
+        misses.values().removeIf(expiresAt -> expiresAt <= now);
+        long nowNanos = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.nanosUntilFull(nowNanos) == 0);
+    }
+
+    // 取key的令牌桶，不限流的key返回null
+    private TokenBucket bucket(VerifiedApiKey apiKey, long nowNanos) {
+        Integer limit = apiKey.getRateLimitPerMinute();
+        if (limit == null) {
+            return null;
+        }
+        TokenBucket bucket = buckets.get(apiKey.getId());
+        if (bucket == null) {
+            if (buckets.size() >= rateLimitMaxBuckets) {
+                evictBuckets(nowNanos);
+            }
+            bucket = buckets.computeIfAbsent(apiKey.getId(), id -> TokenBucket.perMinute(limit, nowNanos));
+        }
+        return bucket;
+    }
+
+    // 先淘汰已装满的桶，不会放宽限额；仍然已满时淘汰最久未使用的桶
+    private synchronized void evictBuckets(long nowNanos) {
+        if (buckets.size() < rateLimitMaxBuckets) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.nanosUntilFull(nowNanos) == 0);
+        while (buckets.size() >= rateLimitMaxBuckets) {
+            Long oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<Long, TokenBucket> entry : buckets.entrySet()) {
+                long access = entry.getValue().getLastAccessNanos();
+                if (oldest == null || access - oldestAccess < 0) {
+                    oldest = entry.getKey();
+                    oldestAccess = access;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            buckets.remove(oldest);
+        }
+    }
+
+    // 从数据库（或内存存储）加载key并检查所属用户
+    private CachedKey load(String keyHash, CachedKey previous, long now) {
+        ApiKey stored = apiKeyRepository != null
+                ? apiKeyRepository.findByKeyHash(keyHash).orElse(null)
+                : memoryKeys.get(keyHash);
+        if (stored == null || stored.isRevoked()) {
+            cache.remove(keyHash);
+            recordMiss(keyHash, now);
+            return null;
+        }
+        User owner = userStore.findForAuthentication(stored.getTenantId(), stored.getUsername()).orElse(null);
+        if (previous != null && previous.key.getId().equals(stored.getId())) {
+            previous.refresh(stored, owner, now);
+            return previous;
+        }
+        CachedKey cached = new CachedKey();
+        cached.refresh(stored, owner, now);
+        if (cache.size() >= cacheMaxSize) {
+            evictCache(now);
+        }
+        cache.put(keyHash, cached);
+        return cached;
+    }
+
+    // 先移除失效的缓存项，仍然已满时淘汰最久未使用的一批
+    private synchronized void evictCache(long now) {
+        if (cache.size() < cacheMaxSize) {
+            return;
+        }
+        cache.values().removeIf(cached -> !cached.isActive(now));
+        evictOldest(cache, cached -> cached.lastUsed, cacheMaxSize - 1 - cacheMaxSize / EVICTION_DIVISOR);
+    }
+
+    private boolean isKnownMiss(String keyHash, long now) {
+        Long expiresAt = misses.get(keyHash);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt > now) {
+            return true;
+        }
+        misses.remove(keyHash, expiresAt);
+        return false;
+    }
+
+    private void recordMiss(String keyHash, long now) {
+        if (misses.size() >= negativeCacheMaxSize) {
+            evictMisses(now);
+        }
+        misses.put(keyHash, now + negativeCacheTtlMs);
+    }
+
+    // 先移除已过期的项，仍然已满时淘汰最早过期的一批
+    private synchronized void evictMisses(long now) {
+        if (misses.size() < negativeCacheMaxSize) {
+            return;
+        }
+        misses.values().removeIf(expiresAt -> expiresAt <= now);
+        evictOldest(misses, Long::longValue, negativeCacheMaxSize - 1 - negativeCacheMaxSize / EVICTION_DIVISOR);
+    }
+
+    // 按时间从早到晚移除，直到数量不超过target
+    private static <K, V> void evictOldest(Map<K, V> map, ToLongFunction<V> time, int target) {
+        int excess = map.size() - Math.max(0, target);
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<K, V>> entries = new ArrayList<>(map.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<K, V> entry) -> time.applyAsLong(entry.getValue())));
+        for (int i = 0; i < excess && i < entries.size(); i++) {
+            map.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    private static long parseScopes(List<String> scopes, long ownerPermissions) {
+        if (scopes == null || scopes.isEmpty()) {
+            return ownerPermissions;
+        }
+        long mask = 0;
+        for (String scope : scopes) {
+            try {
+                mask |= Permission.valueOf(scope).mask();
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Unknown scope: " + scope);
+            }
+        }
+        return mask;
+    }
+
+    private static String hash(String rawKey) {
+        byte[] digest = SHA256.get().digest(rawKey.getBytes(StandardCharsets.US_ASCII));
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static ApiKeyResponse toResponse(ApiKey apiKey, String rawKey) {
+        return new ApiKeyResponse(apiKey.getId(), apiKey.getName(), rawKey, apiKey.getKeyPrefix(),
+                Permission.namesOf(apiKey.getPermissions()), apiKey.getRateLimitPerMinute(),
+                apiKey.getCreatedAt(), apiKey.getExpiresAt(), apiKey.getLastUsedAt(), apiKey.isRevoked());
+    }
+
+    /**
+     * 缓存中的key，权限、过期时间、吊销标记和用户状态随重新加载更新，最后使用时间在请求线程间共享
+     */
+    private static final class CachedKey {
+        private volatile VerifiedApiKey key;
+        private volatile long loadedAt;
+        private volatile long expiresAt;
+        private volatile boolean revoked;
+        private volatile boolean ownerActive;
+        private volatile long lastUsed;
+
+        // owner为null表示用户已不存在
+        private void refresh(ApiKey stored, User owner, long now) {
+            long ownerPermissions = owner == null ? 0 : Role.maskOf(owner.getRoles());
+            this.key = new VerifiedApiKey(stored.getId(), stored.getTenantId(), stored.getUsername(),
+                    stored.getPermissions() & ownerPermissions, stored.getRateLimitPerMinute());
+            this.expiresAt = stored.getExpiresAt() == null ? Long.MAX_VALUE : stored.getExpiresAt().toEpochMilli();
+            this.revoked = stored.isRevoked();
+            this.ownerActive = owner != null && owner.isEnabled() && owner.isAccountNonLocked()
+                    && owner.isAccountNonExpired();
+            this.loadedAt = now;
+        }
+
+        private boolean isActive(long now) {
+            return !revoked && ownerActive && expiresAt > now;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/**
+ * SessionService实现类详解：
+ *
+ * 1. 存储结构：
+ *    - 数据库表user_sessions按jti唯一索引、按用户名索引，是会话的持久记录
+ *    - 内存中用ConcurrentHashMap按jti缓存会话，并维护（租户, 用户名）到jti集合的索引
+ *    - 请求路径上只查内存，缓存未命中时才按jti查询一次数据库
+ *    - 内存存储模式下没有数据库，会话只保存在内存中
+ *
+ * 2. 活跃会话上限：
+ *    - 登录时检查用户的活跃会话数，超过session.max-active-per-user时注销最早签发的会话
+ *    - 同一用户的登录和全部注销在按userKey分段的锁上串行执行；锁对象固定不变，
+ *      不会因为用户的会话集合被移除、重建而失效
+ *    - 会话有效期与所属租户的token有效期一致
+ *
+ * 3. 最后访问时间：
+ *    - 每次请求只更新内存中的时间戳，并记入待写表（同一会话只保留最新值）
+ *    - 定时任务每隔session.last-seen-flush-ms把待写表一次性批量写入数据库
+ *    - 同一定时任务会清理内存中已过期或已注销的会话
+ *
+ * 4. 多节点一致性：
+ *    - 注销会话时通过InvalidationBus通知其他节点（SESSION主题为单个会话，USER主题为用户的全部会话）
+ *    - 其他节点丢弃对应的缓存，下一次请求从数据库重新加载，看到已注销的状态
+ */
+
+package com.example.jwtauth.service.impl;
+
+import com.example.jwtauth.dto.SessionResponse;
+import com.example.jwtauth.entity.UserSession;
+import com.example.jwtauth.invalidation.InvalidationBus;
+import com.example.jwtauth.invalidation.InvalidationTopic;
+import com.example.jwtauth.repository.UserSessionRepository;
+import com.example.jwtauth.service.SessionService;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import com.example.jwtauth.tenant.TenantRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class SessionServiceImpl implements SessionService {
+
+    private static final String UPDATE_LAST_SEEN = "UPDATE user_sessions SET last_seen_at = ? WHERE jti = ?";
+
+    // 同一会话两次记录最后访问时间的最小间隔
+    private static final long LAST_SEEN_RESOLUTION_MS = 1000L;
+
+    // 按用户分段的锁数量
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserSessionRepository sessionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TenantRegistry tenantRegistry;
+    private final InvalidationBus invalidationBus;
+    private final int maxActivePerUser;
+
+    private final Map<String, ActiveSession> sessions = new ConcurrentHashMap<>();
+    // 键为租户ID和用户名拼成的userKey
+    private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    // 待写入的最后访问时间，同一会话多次访问只保留最新值
+    private final Map<String, Long> pendingLastSeen = new ConcurrentHashMap<>();
+    // 同一用户的登录与注销串行处理，不能锁在会话集合上（集合会被移除后重建）
+    private final Object[] userLocks = new Object[LOCK_STRIPES];
+
+    public SessionServiceImpl(ObjectProvider<UserSessionRepository> sessionRepository,
+                              ObjectProvider<JdbcTemplate> jdbcTemplate,
+                              TenantRegistry tenantRegistry,
+                              InvalidationBus invalidationBus,
+                              @Value("${session.max-active-per-user:5}") int maxActivePerUser) {
+        // 内存存储模式下没有数据库，两者都为空
+        this.sessionRepository = sessionRepository.getIfAvailable();
+        this.jdbcTemplate = jdbcTemplate.getIfAvailable();
+        this.tenantRegistry = tenantRegistry;
+        this.invalidationBus = invalidationBus;
+        this.maxActivePerUser = maxActivePerUser;
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new Object();
+        }
+        invalidationBus.subscribe(InvalidationTopic.SESSION, this::evictSession);
+        invalidationBus.subscribe(InvalidationTopic.USER, this::evictUser);
+    }
+
+    @Override
+    public String register(String username, HttpServletRequest request) {
+        String tenantId = TenantContextHolder.getTenantId();
+        Instant now = Instant.now();
+        String jti = UUID.randomUUID().toString();
+        ActiveSession session = new ActiveSession(jti, tenantId, username, fingerprint(request),
+                now, now.plusMillis(tenantRegistry.getExpiration(tenantId)));
+
+        // 同一用户的登录串行处理，保证活跃会话数不超过上限
+        synchronized (userLock(session.userKey())) {
+            if (sessionRepository != null) {
+                // 合并其他节点登记的会话
+                for (UserSession stored : sessionRepository
+                        .findByTenantIdAndUsernameAndRevokedFalseAndExpiresAtAfter(tenantId, username, now)) {
+                    cache(ActiveSession.from(stored));
+                }
+            }
+
+            List<ActiveSession> active = userSessions(session.userKey()).stream()
+                    .map(sessions::get)
+                    .filter(s -> s != null && s.isActive(now.toEpochMilli()))
+                    .sorted(Comparator.comparing(s -> s.issuedAt))
+                    .collect(Collectors.toList());
+            List<String> evicted = new ArrayList<>();
+            for (int i = 0; i <= active.size() - maxActivePerUser; i++) {
+                ActiveSession oldest = active.get(i);
+                markRevoked(oldest);
+                evicted.add(oldest.jti);
+            }
+
+            cache(session);
+            if (sessionRepository != null) {
+                if (!evicted.isEmpty()) {
+                    sessionRepository.revokeByJtiIn(evicted);
+                }
+                for (String evictedJti : evicted) {
+                    invalidationBus.publish(InvalidationTopic.SESSION, evictedJti);
+                }
+                sessionRepository.save(new UserSession(null, jti, tenantId, username, session.deviceFingerprint,
+                        session.issuedAt, session.expiresAt, now, false));
+            }
+        }
+        return jti;
+    }
+
+    @Override
+    public boolean touch(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        ActiveSession session = sessions.get(jti);
+        if (session == null) {
+            session = load(jti);
+            if (session == null) {
+                return false;
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (!session.isActive(now)) {
+            return false;
+        }
+        // 只更新内存并记入待写表，由定时任务批量落库
+        if (now - session.lastSeen >= LAST_SEEN_RESOLUTION_MS) {
+            session.lastSeen = now;
+            pendingLastSeen.put(jti, now);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean revoke(String jti) {
+        ActiveSession session = sessions.get(jti);
+        if (session == null) {
+            session = load(jti);
+        }
+        if (session == null || session.revoked) {
+            return false;
+        }
+        markRevoked(session);
+        if (sessionRepository != null) {
+            sessionRepository.revokeByJtiIn(Collections.singleton(jti));
+            invalidationBus.publish(InvalidationTopic.SESSION, jti);
+        }
+        return true;
+    }
+
+    @Override
+    public int revokeAll(String username) {
+        String tenantId = TenantContextHolder.getTenantId();
+        String userKey = userKey(tenantId, username);
+        int revoked = 0;
+        synchronized (userLock(userKey)) {
+            Set<String> userSessions = sessionsByUser.remove(userKey);
+            if (userSessions != null) {
+                for (String jti : userSessions) {
+                    ActiveSession session = sessions.get(jti);
+                    if (session != null && !session.revoked) {
+                        markRevoked(session);
+                        revoked++;
+                    }
+                }
+            }
+            if (sessionRepository != null) {
+                revoked = Math.max(revoked, sessionRepository.revokeAllByUsername(tenantId, username));
+                invalidationBus.publish(InvalidationTopic.USER, userKey);
+            }
+        }
+        return revoked;
+    }
+
+    @Override
+    public List<SessionResponse> findActiveSessions(String username, String currentJti) {
+        String tenantId = TenantContextHolder.getTenantId();
+        long now = System.currentTimeMillis();
+        List<SessionResponse> result = new ArrayList<>();
+        if (sessionRepository != null) {
+            for (UserSession stored : sessionRepository
+                    .findByTenantIdAndUsernameAndRevokedFalseAndExpiresAtAfter(tenantId, username, Instant.now())) {
+                // 内存中的最后访问时间可能比数据库更新
+                ActiveSession cached = sessions.get(stored.getJti());
+                if (cached != null && cached.revoked) {
+                    continue;
+                }
+                Instant lastSeen = cached != null ? Instant.ofEpochMilli(cached.lastSeen) : stored.getLastSeenAt();
+                result.add(new SessionResponse(stored.getJti(), stored.getDeviceFingerprint(),
+                        stored.getIssuedAt(), lastSeen, stored.getJti().equals(currentJti)));
+            }
+            return result;
+        }
+        for (String jti : sessionsByUser.getOrDefault(userKey(tenantId, username), Collections.emptySet())) {
+            ActiveSession session = sessions.get(jti);
+            if (session != null && session.isActive(now)) {
+                result.add(new SessionResponse(jti, session.deviceFingerprint, session.issuedAt,
+                        Instant.ofEpochMilli(session.lastSeen), jti.equals(currentJti)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入最后访问时间，并清理内存中的失效会话
+     */
+    @Scheduled(fixedDelayString = "${session.last-seen-flush-ms:30000}")
+    public void flushLastSeen() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : pendingLastSeen.entrySet()) {
+            // 只有值未被并发更新时才移除，否则留到下一轮
+            if (pendingLastSeen.remove(entry.getKey(), entry.getValue())) {
+                rows.add(new Object[]{new Timestamp(entry.getValue()), entry.getKey()});
+            }
+        }
+        if (!rows.isEmpty() && jdbcTemplate != null) {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN, rows);
+        }
+
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> {
+            if (session.isActive(now)) {
+                return false;
+            }
+            Set<String> userSessions = sessionsByUser.get(session.userKey());
+            if (userSessions != null) {
+                userSessions.remove(session.jti);
+            }
+            return true;
+        });
+    }
+
+    // 其他节点注销了会话，丢弃缓存后下次从数据库加载；jti为null时清空全部缓存
+    private void evictSession(String jti) {
+        if (jti == null) {
+            sessions.clear();
+            sessionsByUser.clear();
+            return;
+        }
+        ActiveSession session = sessions.remove(jti);
+        if (session != null) {
+            Set<String> userSessions = sessionsByUser.get(session.userKey());
+            if (userSessions != null) {
+                userSessions.remove(jti);
+            }
+        }
+    }
+
+    // 其他节点注销了用户的全部会话（或用户状态变化），丢弃该用户的缓存会话
+    private void evictUser(String userKey) {
+        if (userKey == null) {
+            evictSession(null);
+            return;
+        }
+        synchronized (userLock(userKey)) {
+            Set<String> userSessions = sessionsByUser.remove(userKey);
+            if (userSessions != null) {
+                for (String jti : userSessions) {
+                    sessions.remove(jti);
+                }
+            }
+        }
+    }
+
+    private Object userLock(String userKey) {
+        return userLocks[(userKey.hashCode() & Integer.MAX_VALUE) % userLocks.length];
+    }
+
+    private Set<String> userSessions(String userKey) {
+        return sessionsByUser.computeIfAbsent(userKey, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    // 不同租户可以有同名用户，索引键需要包含租户
+    private static String userKey(String tenantId, String username) {
+        return tenantId + '\u0000' + username;
+    }
+
+    private void cache(ActiveSession session) {
+        ActiveSession existing = sessions.putIfAbsent(session.jti, session);
+        if (existing == null && !session.revoked) {
+            userSessions(session.userKey()).add(session.jti);
+        }
+    }
+
+    private ActiveSession load(String jti) {
+        if (sessionRepository == null) {
+            return null;
+        }
+        return sessionRepository.findByJti(jti)
+                .map(stored -> {
+                    // 已注销的会话也缓存下来，避免重复查询数据库
+                    cache(ActiveSession.from(stored));
+                    return sessions.get(jti);
+                })
+                .orElse(null);
+    }
+
+    private void markRevoked(ActiveSession session) {
+        session.revoked = true;
+        pendingLastSeen.remove(session.jti);
+        Set<String> userSessions = sessionsByUser.get(session.userKey());
+        if (userSessions != null) {
+            userSessions.remove(session.jti);
+        }
+    }
+
+    // 设备指纹：优先使用客户端提供的X-Device-Id，否则使用User-Agent的哈希
+    private static String fingerprint(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        String source = request.getHeader("X-Device-Id");
+        if (source == null || source.isEmpty()) {
+            source = request.getHeader("User-Agent");
+        }
+        if (source == null || source.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 内存中的会话记录，最后访问时间和注销标记在请求线程间共享
+     */
+    private static final class ActiveSession {
+        private final String jti;
+        private final String tenantId;
+        private final String username;
+        private final String deviceFingerprint;
+        private final Instant issuedAt;
+        private final Instant expiresAt;
+        private volatile long lastSeen;
+        private volatile boolean revoked;
+
+        private ActiveSession(String jti, String tenantId, String username, String deviceFingerprint,
+                              Instant issuedAt, Instant expiresAt) {
+            this.jti = jti;
+            this.tenantId = tenantId;
+            this.username = username;
+            this.deviceFingerprint = deviceFingerprint;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+            this.lastSeen = issuedAt.toEpochMilli();
+        }
+
+        private static ActiveSession from(UserSession stored) {
+            ActiveSession session = new ActiveSession(stored.getJti(), stored.getTenantId(), stored.getUsername(),
+                    stored.getDeviceFingerprint(), stored.getIssuedAt(), stored.getExpiresAt());
+            if (stored.getLastSeenAt() != null) {
+                session.lastSeen = stored.getLastSeenAt().toEpochMilli();
+            }
+            session.revoked = stored.isRevoked();
+            return session;
+        }
+
+        private String userKey() {
+            return SessionServiceImpl.userKey(tenantId, username);
+        }
+
+        private boolean isActive(long now) {
+            return !revoked && expiresAt.toEpochMilli() > now;
+        }
+    }
+}
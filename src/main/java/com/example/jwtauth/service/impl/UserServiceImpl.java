@@ -7,65 +7,120 @@
  *    - 用户认证：实现Spring Security的UserDetailsService接口
  * 
  * 2. 数据存储：
- *    - 使用ConcurrentHashMap在内存中存储用户信息
- *    - 使用AtomicLong生成唯一的用户ID
- *    - 注意：这是演示用途，实际应用应该使用数据库存储
+ *    - 通过UserStore接口访问存储后端，由配置user.store.type选择
+ *    - jpa（默认）：使用JPA和PostgreSQL持久化用户信息
+ *    - memory：使用分片的内存存储，适合边缘节点和性能测试，无需数据库
+ *    - 所有读写都限定在当前请求的租户内（TenantContextHolder）
+ *    - 日志通过MDC带有请求ID，与控制器和过滤器的日志关联
  * 
- * 3. 安全特性：
+ * 3. 注册：
+ *    - 同一租户内同名的注册同时只允许一个进行，其余立即拒绝
+ *    - 加密密码前先检查用户名，重复注册不消耗BCrypt计算
+ *    - 写入由UserStore.create原子完成（用户和角色一起写入，冲突时不写入），
+ *      检查之后被其他节点抢先注册的情况也由它发现，统一抛出UsernameAlreadyExistsException
+ *    - 注册成功后在USER主题上发布失效通知；角色变更、锁定等修改用户安全状态的操作同样需要发布
+ *    - 公开注册只接受用户名、密码和邮箱，角色固定为USER，账号状态使用默认值；
+ *      其他角色只能由服务端分配（如initializeUsers中的管理员）
+ *
+ * 4. 安全特性：
  *    - 密码加密：使用PasswordEncoder加密存储密码
- *    - 线程安全：使用ConcurrentHashMap确保并发安全
+ *    - 线程安全：并发控制由存储后端负责
  *    - 角色管理：支持用户角色的分配和管理
  * 
- * 4. 测试用户：
+ * 5. 测试用户：
  *    - 管理员账号：username=admin, password=admin123
  *    - 普通用户：username=user, password=user123
  * 
- * 5. 主要方法：
- *    - registerUser：注册新用户，包含密码加密和角色分配
+ * 6. 主要方法：
+ *    - registerUser：注册新用户，包含密码加密和默认角色分配
  *    - existsByUsername：检查用户名是否已存在
  *    - findByUsername：根据用户名查找用户
- *    - loadUserByUsername：Spring Security认证时加载用户信息
+ *    - loadUserByUsername：Spring Security认证时加载用户信息，使用UserStore.findForAuthentication的轻量查询
  */
 
 package com.example.jwtauth.service.impl;
 
+import com.example.jwtauth.dto.RegisterRequest;
 import com.example.jwtauth.entity.User;
-import com.example.jwtauth.repository.UserRepository;
+import com.example.jwtauth.exception.UsernameAlreadyExistsException;
+import com.example.jwtauth.invalidation.InvalidationBus;
+import com.example.jwtauth.invalidation.InvalidationTopic;
 import com.example.jwtauth.service.UserService;
+import com.example.jwtauth.store.UserStore;
+import com.example.jwtauth.tenant.TenantContextHolder;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * UserService的实现类
- * 使用内存存储实现用户管理
+ * 用户数据的读写委托给UserStore
  */
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserServiceImpl.class);
+
     private final PasswordEncoder passwordEncoder;
-    private final UserRepository userRepository;
+    private final UserStore userStore;
+    private final InvalidationBus invalidationBus;
+
+    // 正在注册的用户（租户ID + 用户名）
+    private final Set<String> pendingRegistrations = ConcurrentHashMap.newKeySet();
 
     /**
      * 注册新用户
      */
     @Override
-    public User registerUser(User user) {
-        // 加密密码
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        
-        // 如果没有设置角色，设置默认角色
-        if (user.getRoles() == null || user.getRoles().isEmpty()) {
-            user.setRoles(Collections.singletonList("USER"));
+    public User registerUser(RegisterRequest request) {
+        // 只取用户名、密码和邮箱，角色和账号状态由服务端设置
+        User user = new User();
+        user.setUsername(request.getUsername());
+        user.setPassword(request.getPassword());
+        user.setEmail(request.getEmail());
+        user.setRoles(Collections.singletonList("USER"));
+        return register(user);
+    }
+
+    // 写入用户，角色和账号状态由调用方设置
+    private User register(User user) {
+        // 用户属于当前请求的租户
+        String tenantId = TenantContextHolder.getTenantId();
+        user.setTenantId(tenantId);
+
+        // 同名注册正在进行时直接拒绝
+        String pendingKey = tenantId + '\u0000' + user.getUsername();
+        if (!pendingRegistrations.add(pendingKey)) {
+            throw new UsernameAlreadyExistsException(user.getUsername());
+        }
+        try {
+            // 先检查用户名，已存在时不做BCrypt计算
+            if (userStore.existsByUsername(tenantId, user.getUsername())) {
+                throw new UsernameAlreadyExistsException(user.getUsername());
+            }
+
+            // 加密密码
+            user.setPassword(passwordEncoder.encode(user.getPassword()));
+
+            // 原子写入用户和角色，冲突时说明被其他节点抢先注册
+            User saved = userStore.create(user)
+                    .orElseThrow(() -> new UsernameAlreadyExistsException(user.getUsername()));
+            log.info("Registered user {} in tenant {} with roles {}", saved.getUsername(), saved.getTenantId(), saved.getRoles());
+            // 其他节点可能缓存了该用户名的旧状态
+            invalidationBus.publish(InvalidationTopic.USER, tenantId + '\u0000' + saved.getUsername());
+            return saved;
+        } finally {
+            pendingRegistrations.remove(pendingKey);
         }
-        
-        // 存储用户信息
-        return userRepository.save(user);
     }
 
     /**
@@ -73,7 +128,7 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public boolean existsByUsername(String username) {
-        return userRepository.existsByUsername(username);
+        return userStore.existsByUsername(TenantContextHolder.getTenantId(), username);
     }
 
     /**
@@ -81,7 +136,7 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public User findByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return userStore.findByUsername(TenantContextHolder.getTenantId(), username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
     }
 
@@ -90,8 +145,13 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        String tenantId = TenantContextHolder.getTenantId();
+        // 登录和每个携带token的请求都会调用，只查询认证需要的字段
+        return userStore.findForAuthentication(tenantId, username)
+                .orElseThrow(() -> {
+                    log.debug("User {} not found in tenant {}", username, tenantId);
+                    return new UsernameNotFoundException("User not found with username: " + username);
+                });
     }
 
     // 初始化一些测试用户
@@ -103,7 +163,7 @@ public class UserServiceImpl implements UserService {
             admin.setPassword("admin123"); // 实际使用时应该使用更强的密码
             admin.setEmail("admin@example.com");
             admin.setRoles(Collections.singletonList("ADMIN"));
-            registerUser(admin);
+            register(admin);
         }
 
         // 创建普通用户
@@ -113,7 +173,7 @@ public class UserServiceImpl implements UserService {
             user.setPassword("user123"); // 实际使用时应该使用更强的密码
             user.setEmail("user@example.com");
             user.setRoles(Collections.singletonList("USER"));
-            registerUser(user);
+            register(user);
         }
     }
 } 
\ No newline at end of file
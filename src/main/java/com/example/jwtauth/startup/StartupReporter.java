@@ -0,0 +1,60 @@
+/**
+ * 启动指标报告
+ *
+ * 应用就绪时输出JVM启动到就绪的耗时和当前常驻内存(RSS)，用于对比启动优化前后的效果。
+ * 以startup.training-run=true启动时，就绪后立即退出，用于生成CDS归档（见pom.xml的cds profile）。
+ */
+
+package com.example.jwtauth.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Component
+public class StartupReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReporter.class);
+
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    @Value("${startup.training-run:false}")
+    private boolean trainingRun;
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Application ready in {} ms since JVM start, RSS: {}", uptime, residentSetSize());
+
+        if (trainingRun) {
+            log.info("Training run finished, exiting so the class data sharing archive can be written");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    // 读取Linux的VmRSS，其他平台返回unknown
+    private static String residentSetSize() {
+        if (!Files.isReadable(PROC_STATUS)) {
+            return "unknown";
+        }
+        try {
+            return Files.readAllLines(PROC_STATUS).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst()
+                    .orElse("unknown");
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * 启动预热详解：
+ *
+ * 1. 执行时机：
+ *    - 作为ApplicationRunner在上下文刷新之后、应用报告就绪之前执行
+ *    - Spring Boot在所有runner完成后才把就绪状态切换为ACCEPTING_TRAFFIC，
+ *      因此预热期间 /actuator/health/readiness 不会返回UP，负载均衡不会转发流量
+ *
+ * 2. 预热内容（每一项的次数都可配置，设为0跳过）：
+ *    - token：签发、解析、验证合成token（启用时包括紧凑令牌），让JwtUtil和HMAC路径完成JIT编译
+ *    - bcrypt：对合成密码做BCrypt校验，加载并编译加密代码
+ *    - json：序列化登录和/me的响应DTO，让Jackson建立序列化器缓存
+ *    - store：按不存在的用户名查询用户存储，在数据库模式下建立Hibernate查询计划并预热连接池
+ *    - session：查询不存在的会话，走一遍会话登记的缓存和数据库查找路径
+ *
+ * 3. 指标：
+ *    - startup.warmup.duration：各阶段耗时（Timer，按phase标签区分）
+ *    - startup.warmup.iterations：各阶段实际执行次数
+ *    - startup.warmup.failures：各阶段失败次数，预热失败只记录日志，不阻止启动
+ */
+
+package com.example.jwtauth.startup;
+
+import com.example.jwtauth.dto.AuthResponse;
+import com.example.jwtauth.dto.CurrentUserResponse;
+import com.example.jwtauth.service.SessionService;
+import com.example.jwtauth.store.UserStore;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import com.example.jwtauth.util.JwtUtil;
+import com.example.jwtauth.util.TokenClaims;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@RequiredArgsConstructor
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmUpRunner.class);
+
+    // 合成数据使用的用户名，带随机后缀，不会与真实用户冲突
+    private static final String WARMUP_USER = "__warmup__" + UUID.randomUUID();
+
+    private final JwtUtil jwtUtil;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final UserStore userStore;
+    private final SessionService sessionService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.token-iterations:2000}")
+    private int tokenIterations;
+
+    @Value("${warmup.bcrypt-iterations:3}")
+    private int bcryptIterations;
+
+    @Value("${warmup.json-iterations:500}")
+    private int jsonIterations;
+
+    @Value("${warmup.store-iterations:50}")
+    private int storeIterations;
+
+    @Value("${warmup.session-iterations:50}")
+    private int sessionIterations;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        UserDetails user = new User(WARMUP_USER, "",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+
+        runPhase("token", tokenIterations, () -> warmUpToken(user));
+        String hash = passwordEncoder.encode("warmup-password");
+        runPhase("bcrypt", bcryptIterations, () -> passwordEncoder.matches("warmup-password", hash));
+        runPhase("json", jsonIterations, this::warmUpJson);
+        runPhase("store", storeIterations, () -> {
+            userStore.existsByUsername(TenantContextHolder.DEFAULT_TENANT, WARMUP_USER);
+            userStore.findByUsername(TenantContextHolder.DEFAULT_TENANT, WARMUP_USER);
+            userStore.findForAuthentication(TenantContextHolder.DEFAULT_TENANT, WARMUP_USER);
+        });
+        runPhase("session", sessionIterations, () -> sessionService.touch(UUID.randomUUID().toString()));
+
+        log.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void warmUpToken(UserDetails user) {
+        String tokenId = UUID.randomUUID().toString();
+        TokenClaims claims = jwtUtil.parseToken(jwtUtil.generateToken(user, tokenId));
+        jwtUtil.validateToken(claims, user);
+        if (jwtUtil.isCompactEnabled()) {
+            jwtUtil.validateToken(jwtUtil.parseToken(jwtUtil.generateCompactToken(user, tokenId)), user);
+        }
+    }
+
+    private void warmUpJson() throws Exception {
+        Date now = new Date();
+        objectMapper.writeValueAsBytes(new AuthResponse("warmup-token", WARMUP_USER, null,
+                Collections.singletonList("USER")));
+        objectMapper.writeValueAsBytes(new CurrentUserResponse(WARMUP_USER, null,
+                Collections.singletonList("USER"), now, now));
+    }
+
+    // 执行一个预热阶段并记录耗时、次数和失败数；某次失败后该阶段立即结束
+    private void runPhase(String phase, int iterations, WarmUpTask task) {
+        if (iterations <= 0) {
+            return;
+        }
+        Counter failures = meterRegistry.counter("startup.warmup.failures", "phase", phase);
+        int completed = 0;
+        long start = System.nanoTime();
+        try {
+            for (; completed < iterations; completed++) {
+                task.run();
+            }
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Warm-up phase '{}' stopped after {} iterations: {}", phase, completed, e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("startup.warmup.duration")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("startup.warmup.iterations", "phase", phase).increment(completed);
+        log.debug("Warm-up phase '{}': {} iterations in {} ms", phase, completed, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    @FunctionalInterface
+    private interface WarmUpTask {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.jwtauth.store;
+
+import com.example.jwtauth.entity.User;
+
+import java.util.Optional;
+
+/**
+ * 用户存储后端接口
+ * UserService通过该接口读写用户，具体实现由配置user.store.type选择：
+ * - jpa：基于JPA和数据库（默认）
+ * - memory：基于内存分片存储，用于边缘节点和性能测试，无需数据库
+ * 用户按租户隔离，查询都需要指定租户ID
+ */
+public interface UserStore {
+
+    /**
+     * 在租户内根据用户名查找用户
+     * @param tenantId 租户ID
+     * @param username 用户名
+     * @return 用户信息，不存在时为空
+     */
+    Optional<User> findByUsername(String tenantId, String username);
+
+    /**
+     * 在租户内查找认证所需的用户信息（用户名、密码哈希、状态标记、角色和邮箱）
+     * 返回的User只用于认证，与存储分离，修改它不会写回存储
+     * @param tenantId 租户ID
+     * @param username 用户名
+     * @return 用户信息，不存在时为空
+     */
+    default Optional<User> findForAuthentication(String tenantId, String username) {
+        return findByUsername(tenantId, username);
+    }
+
+    /**
+     * 检查租户内用户名是否已存在
+     * @param tenantId 租户ID
+     * @param username 用户名
+     * @return true如果用户名已存在，否则false
+     */
+    boolean existsByUsername(String tenantId, String username);
+
+    /**
+     * 保存用户（租户由user.tenantId指定），新用户会分配ID
+     * @param user 用户信息
+     * @return 保存后的用户
+     */
+    User save(User user);
+
+    /**
+     * 原子地创建新用户（连同角色），用户名在租户内已存在时不写入
+     * 并发注册同一用户名时只有一个成功，不会因唯一约束冲突抛出异常（JPA存储中邮箱冲突同样不写入）
+     * @param user 用户信息（租户由user.tenantId指定，密码已加密）
+     * @return 创建后的用户（已分配ID），用户名已存在时为空
+     */
+    Optional<User> create(User user);
+}
@@ -0,0 +1,357 @@
+/**
+ * 内存用户存储详解：
+ *
+ * 1. 分片与锁：
+ *    - 用户按用户名哈希分散到多个分片，每个分片有独立的读写锁（锁分段）
+ *    - 不同分片上的读写互不阻塞，高并发下几乎没有锁竞争
+ *
+ * 2. 用户名索引：
+ *    - 以租户ID加用户名作为键，与数据库的唯一约束一样区分大小写，切换存储不改变登录和唯一性规则
+ *    - 只保证同一租户内用户名唯一，不检查邮箱唯一性
+ *
+ * 3. 快照：
+ *    - 配置user.store.memory.snapshot-file后，启动时从文件恢复，关闭时写入快照
+ *    - 读写均通过内存映射文件(MappedByteBuffer)完成，先写临时文件再原子替换
+ *    - 版本1的快照没有租户字段，恢复时归入默认租户
+ *
+ * 4. 数据隔离：
+ *    - 存入和取出时都会复制User对象，调用方修改返回值不会影响存储内容
+ */
+
+package com.example.jwtauth.store.impl;
+
+import com.example.jwtauth.entity.User;
+import com.example.jwtauth.store.UserStore;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@ConditionalOnProperty(prefix = "user.store", name = "type", havingValue = "memory")
+public class InMemoryUserStore implements UserStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x4A555352; // "JUSR"
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Path snapshotFile;
+
+    public InMemoryUserStore(@Value("${user.store.memory.shards:16}") int shardCount,
+                             @Value("${user.store.memory.snapshot-file:}") String snapshotFile) {
+        // 分片数取不小于配置值的2的幂，便于用位运算定位分片
+        int size = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardMask = size - 1;
+        this.snapshotFile = snapshotFile == null || snapshotFile.isEmpty() ? null : Paths.get(snapshotFile);
+    }
+
+    @PostConstruct
+    public void restoreOnStartup() throws IOException {
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            restore(snapshotFile);
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() throws IOException {
+        if (snapshotFile != null) {
+            snapshot(snapshotFile);
+        }
+    }
+
+    @Override
+    public Optional<User> findByUsername(String tenantId, String username) {
+        String key = key(tenantId, username);
+        Shard shard = shardFor(key);
+        shard.lock.readLock().lock();
+        try {
+            return Optional.ofNullable(copy(shard.users.get(key)));
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsByUsername(String tenantId, String username) {
+        String key = key(tenantId, username);
+        Shard shard = shardFor(key);
+        shard.lock.readLock().lock();
+        try {
+            return shard.users.containsKey(key);
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User save(User user) {
+        String key = key(user.getTenantId(), user.getUsername());
+        Shard shard = shardFor(key);
+        shard.lock.writeLock().lock();
+        try {
+            User existing = shard.users.get(key);
+            if (existing != null && !existing.getId().equals(user.getId())) {
+                throw new DuplicateKeyException("Username already exists: " + user.getUsername());
+            }
+            User stored = copy(user);
+            if (stored.getId() == null) {
+                stored.setId(idSequence.incrementAndGet());
+            }
+            shard.users.put(key, stored);
+            user.setId(stored.getId());
+            return copy(stored);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> create(User user) {
+        String key = key(user.getTenantId(), user.getUsername());
+        Shard shard = shardFor(key);
+        shard.lock.writeLock().lock();
+        try {
+            if (shard.users.containsKey(key)) {
+                return Optional.empty();
+            }
+            User stored = copy(user);
+            stored.setId(idSequence.incrementAndGet());
+            shard.users.put(key, stored);
+            user.setId(stored.getId());
+            return Optional.of(copy(stored));
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 当前存储的用户数量
+     */
+    public int size() {
+        int total = 0;
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                total += shard.users.size();
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 将所有用户写入快照文件
+     * 文件格式：magic | version | 当前ID序列 | 用户数 | 用户记录...
+     */
+    public void snapshot(Path file) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long size = 4 + 4 + 8 + 4;
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                for (User user : shard.users.values()) {
+                    byte[] record = encode(user);
+                    records.add(record);
+                    size += record.length;
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(SNAPSHOT_MAGIC)
+                  .putInt(SNAPSHOT_VERSION)
+                  .putLong(idSequence.get())
+                  .putInt(records.size());
+            for (byte[] record : records) {
+                buffer.put(record);
+            }
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 从快照文件恢复用户，已存在的同名用户会被覆盖
+     */
+    public void restore(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 20 || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a user store snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported user store snapshot version: " + version);
+            }
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            long maxId = sequence;
+            for (int i = 0; i < count; i++) {
+                User user = decode(buffer, version);
+                String key = key(user.getTenantId(), user.getUsername());
+                Shard shard = shardFor(key);
+                shard.lock.writeLock().lock();
+                try {
+                    shard.users.put(key, user);
+                } finally {
+                    shard.lock.writeLock().unlock();
+                }
+                maxId = Math.max(maxId, user.getId());
+            }
+            idSequence.accumulateAndGet(maxId, Math::max);
+        } catch (RuntimeException e) {
+            // 截断或损坏的快照会在读取缓冲区时抛出BufferUnderflowException等运行时异常
+            throw new IOException("Corrupted user store snapshot: " + file, e);
+        }
+    }
+
+    private Shard shardFor(String key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private static String key(String tenantId, String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username must not be null");
+        }
+        String tenant = tenantId == null ? TenantContextHolder.DEFAULT_TENANT : tenantId;
+        // 租户ID和用户名之间用不会出现在两者中的字符分隔
+        return tenant + '\u0000' + username;
+    }
+
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new User(
+                user.getId(),
+                user.getTenantId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getEmail(),
+                user.getRoles() == null ? null : new ArrayList<>(user.getRoles()),
+                user.isEnabled(),
+                user.isAccountNonExpired(),
+                user.isAccountNonLocked(),
+                user.isCredentialsNonExpired());
+    }
+
+    // ---------------- 快照记录编解码 ----------------
+
+    private static byte[] encode(User user) {
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(bytes(user.getTenantId()));
+        strings.add(bytes(user.getUsername()));
+        strings.add(bytes(user.getPassword()));
+        strings.add(bytes(user.getEmail()));
+        List<String> roles = user.getRoles() == null ? new ArrayList<>() : user.getRoles();
+        for (String role : roles) {
+            strings.add(bytes(role));
+        }
+
+        int size = 8 + 1 + 4;
+        for (byte[] value : strings) {
+            size += 4 + (value == null ? 0 : value.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(user.getId());
+        buffer.put(flags(user));
+        buffer.putInt(roles.size());
+        for (byte[] value : strings) {
+            if (value == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(value.length).put(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static User decode(ByteBuffer buffer, int version) {
+        User user = new User();
+        user.setId(buffer.getLong());
+        byte flags = buffer.get();
+        int roleCount = buffer.getInt();
+        // 版本1没有租户字段，用户归入默认租户
+        user.setTenantId(version >= 2 ? readString(buffer) : TenantContextHolder.DEFAULT_TENANT);
+        user.setUsername(readString(buffer));
+        user.setPassword(readString(buffer));
+        user.setEmail(readString(buffer));
+        List<String> roles = new ArrayList<>(roleCount);
+        for (int i = 0; i < roleCount; i++) {
+            roles.add(readString(buffer));
+        }
+        user.setRoles(roles);
+        user.setEnabled((flags & 1) != 0);
+        user.setAccountNonExpired((flags & 2) != 0);
+        user.setAccountNonLocked((flags & 4) != 0);
+        user.setCredentialsNonExpired((flags & 8) != 0);
+        return user;
+    }
+
+    private static byte flags(User user) {
+        int flags = 0;
+        if (user.isEnabled()) flags |= 1;
+        if (user.isAccountNonExpired()) flags |= 2;
+        if (user.isAccountNonLocked()) flags |= 4;
+        if (user.isCredentialsNonExpired()) flags |= 8;
+        return (byte) flags;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static final class Shard {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, User> users = new HashMap<>();
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.jwtauth.store.impl;
+
+import com.example.jwtauth.entity.User;
+import com.example.jwtauth.repository.UserAuthenticationRow;
+import com.example.jwtauth.repository.UserRepository;
+import com.example.jwtauth.store.UserStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 基于JPA的用户存储（默认实现）
+ * 查询使用Spring Data仓库；认证（findForAuthentication）使用投影查询，
+ * 一条连接查询取回认证所需的字段和角色，组装成不受管理的User，不经过持久化上下文
+ * 注册（create）绕过JPA直接用JDBC写入：
+ * - PostgreSQL：一条语句完成，用户行INSERT ... ON CONFLICT DO NOTHING，角色行在同一条语句的CTE中插入，
+ *   一次往返，冲突时不写入任何行也不报错
+ * - 其他数据库（测试用的H2）：同一事务内插入用户行并批量插入角色行，唯一约束冲突时回滚
+ */
+@Component
+@ConditionalOnProperty(prefix = "user.store", name = "type", havingValue = "jpa", matchIfMissing = true)
+public class JpaUserStore implements UserStore {
+
+    private static final String INSERT_USER_COLUMNS =
+            "INSERT INTO users (tenant_id, username, password, email, enabled, account_non_expired, "
+            + "account_non_locked, credentials_non_expired) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 用户名或邮箱冲突时CTE不返回行，角色也不会插入
+    private static final String CREATE_WITH_ROLES_POSTGRES =
+            "WITH inserted AS (" + INSERT_USER_COLUMNS + " ON CONFLICT DO NOTHING RETURNING id) "
+            + "INSERT INTO user_roles (user_id, role) "
+            + "SELECT inserted.id, r.role FROM inserted CROSS JOIN unnest(?::varchar[]) AS r(role) "
+            + "RETURNING user_id";
+
+    private static final String CREATE_POSTGRES = INSERT_USER_COLUMNS + " ON CONFLICT DO NOTHING RETURNING id";
+
+    private static final String INSERT_ROLE = "INSERT INTO user_roles (user_id, role) VALUES (?, ?)";
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // 首次注册时检测数据库类型
+    private volatile Boolean postgres;
+
+    public JpaUserStore(UserRepository userRepository,
+                        ObjectProvider<JdbcTemplate> jdbcTemplate,
+                        ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate.getObject();
+        this.transactionTemplate = new TransactionTemplate(transactionManager.getObject());
+    }
+
+    @Override
+    public Optional<User> findByUsername(String tenantId, String username) {
+        return userRepository.findByTenantIdAndUsername(tenantId, username);
+    }
+
+    @Override
+    public Optional<User> findForAuthentication(String tenantId, String username) {
+        List<UserAuthenticationRow> rows = userRepository.findAuthenticationRows(tenantId, username);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        UserAuthenticationRow first = rows.get(0);
+        List<String> roles = new ArrayList<>(rows.size());
+        for (UserAuthenticationRow row : rows) {
+            if (row.getRole() != null) {
+                roles.add(row.getRole());
+            }
+        }
+        return Optional.of(new User(
+                first.getId(),
+                first.getTenantId(),
+                first.getUsername(),
+                first.getPassword(),
+                first.getEmail(),
+                roles,
+                Boolean.TRUE.equals(first.getEnabled()),
+                Boolean.TRUE.equals(first.getAccountNonExpired()),
+                Boolean.TRUE.equals(first.getAccountNonLocked()),
+                Boolean.TRUE.equals(first.getCredentialsNonExpired())));
+    }
+
+    @Override
+    public boolean existsByUsername(String tenantId, String username) {
+        return userRepository.existsByTenantIdAndUsername(tenantId, username);
+    }
+
+    @Override
+    public User save(User user) {
+        return userRepository.save(user);
+    }
+
+    @Override
+    public Optional<User> create(User user) {
+        Long id = isPostgres() ? createPostgres(user) : createInTransaction(user);
+        if (id == null) {
+            return Optional.empty();
+        }
+        user.setId(id);
+        return Optional.of(user);
+    }
+
+    private Long createPostgres(User user) {
+        List<String> roles = user.getRoles() == null ? Collections.emptyList() : user.getRoles();
+        String sql = roles.isEmpty() ? CREATE_POSTGRES : CREATE_WITH_ROLES_POSTGRES;
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bindUser(statement, user);
+                Array roleArray = null;
+                if (!roles.isEmpty()) {
+                    roleArray = connection.createArrayOf("varchar", roles.toArray());
+                    statement.setArray(9, roleArray);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : null;
+                } finally {
+                    if (roleArray != null) {
+                        roleArray.free();
+                    }
+                }
+            }
+        });
+    }
+
+    private Long createInTransaction(User user) {
+        return transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            try {
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(INSERT_USER_COLUMNS,
+                            Statement.RETURN_GENERATED_KEYS);
+                    bindUser(statement, user);
+                    return statement;
+                }, keyHolder);
+            } catch (DuplicateKeyException e) {
+                status.setRollbackOnly();
+                return null;
+            }
+            Long id = keyHolder.getKey().longValue();
+            if (user.getRoles() != null && !user.getRoles().isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(user.getRoles().size());
+                for (String role : user.getRoles()) {
+                    rows.add(new Object[]{id, role});
+                }
+                jdbcTemplate.batchUpdate(INSERT_ROLE, rows);
+            }
+            return id;
+        });
+    }
+
+    private static void bindUser(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getTenantId());
+        statement.setString(2, user.getUsername());
+        statement.setString(3, user.getPassword());
+        statement.setString(4, user.getEmail());
+        statement.setBoolean(5, user.isEnabled());
+        statement.setBoolean(6, user.isAccountNonExpired());
+        statement.setBoolean(7, user.isAccountNonLocked());
+        statement.setBoolean(8, user.isCredentialsNonExpired());
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.jwtauth.tenant;
+
+import com.example.jwtauth.util.CompactTokenCodec;
+import com.example.jwtauth.util.HmacEngine;
+import lombok.Getter;
+
+import java.security.Key;
+
+/**
+ * 已加载的租户：签名密钥和由它构建的签名引擎、紧凑令牌编解码器
+ * 对象不可变，配置重新加载时整体替换
+ */
+@Getter
+public class Tenant {
+
+    private final String id;
+    private final String issuer;
+    private final Key signingKey;
+    private final HmacEngine hmacEngine;
+    private final CompactTokenCodec compactTokenCodec;
+    private final long expiration;
+
+    public Tenant(String id, String issuer, Key signingKey, long expiration) {
+        this.id = id;
+        this.issuer = issuer;
+        this.signingKey = signingKey;
+        this.hmacEngine = new HmacEngine(signingKey);
+        this.compactTokenCodec = new CompactTokenCodec(hmacEngine);
+        this.expiration = expiration;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.jwtauth.tenant;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 租户配置（租户配置文件中的一项）
+ *
+ * 示例：
+ * [
+ *   {"id": "acme", "issuer": "https://auth.acme.example", "secret": "<base64, 至少32字节>", "expirationMs": 3600000}
+ * ]
+ */
+@Data
+@NoArgsConstructor
+public class TenantConfig {
+    private String id;              // 租户ID，用户按租户隔离
+    private String issuer;          // token的签发者(iss)，验证时据此找到签名密钥
+    private String secret;          // HS256签名密钥（base64编码）
+    private Long expirationMs;      // token有效期（毫秒），为空时使用jwt.expiration
+    private boolean enabled = true; // 停用后该租户的token全部验证失败，也不能再登录
+}
@@ -0,0 +1,32 @@
+package com.example.jwtauth.tenant;
+
+/**
+ * 当前请求所属租户
+ *
+ * 与SecurityContextHolder类似，按线程保存租户ID：
+ * - 未携带token的请求（登录、注册）由TenantFilter根据请求头设置
+ * - 携带token的请求由JwtAuthenticationFilter根据token的签发者(iss)覆盖
+ * 未设置时视为默认租户。
+ */
+public final class TenantContextHolder {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContextHolder() {
+    }
+
+    public static String getTenantId() {
+        String tenantId = CURRENT.get();
+        return tenantId == null ? DEFAULT_TENANT : tenantId;
+    }
+
+    public static void setTenantId(String tenantId) {
+        CURRENT.set(tenantId);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
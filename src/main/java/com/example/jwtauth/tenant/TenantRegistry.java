@@ -0,0 +1,202 @@
+/**
+ * 租户注册表详解：
+ *
+ * 1. 数据来源：
+ *    - 租户列表来自tenant.config-file指定的JSON文件（格式见TenantConfig）
+ *    - 默认租户不在文件中配置，由JwtUtil使用jwt.secret和jwt.expiration，密钥按与文件中租户相同的规则构建（signingKey）
+ *
+ * 2. 查找：
+ *    - 按签发者(iss)和租户ID建立两张只读索引，整体放在一个volatile快照里
+ *    - 验证token时只做一次内存查找，不访问数据库，也不加锁
+ *
+ * 3. 热加载：
+ *    - 定时任务每隔tenant.reload-interval-ms检查文件修改时间，变化时重新加载
+ *    - 新快照构建完成后一次性替换旧快照，读线程看到的总是完整的一份配置
+ *    - 文件内容无效时保留旧快照并记录日志；启动时无效则启动失败
+ */
+
+package com.example.jwtauth.tenant;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class TenantRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantRegistry.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // HS256要求密钥至少256位
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final Path configFile;
+    private final long defaultExpiration;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long loadedModifiedTime = -1;
+
+    public TenantRegistry(@Value("${tenant.config-file:}") String configFile,
+                          @Value("${jwt.expiration}") long defaultExpiration) {
+        this.configFile = configFile == null || configFile.isEmpty() ? null : Paths.get(configFile);
+        this.defaultExpiration = defaultExpiration;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (configFile != null) {
+            reload();
+        }
+    }
+
+    /**
+     * 配置文件发生变化时重新加载
+     */
+    @Scheduled(fixedDelayString = "${tenant.reload-interval-ms:10000}")
+    public void reloadIfModified() {
+        if (configFile == null || !Files.exists(configFile)) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(configFile).toMillis() != loadedModifiedTime) {
+                reload();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to reload tenant config {}, keeping previous tenants: {}", configFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 从配置文件重新加载全部租户
+     * @throws IllegalArgumentException 配置内容无效时
+     */
+    public synchronized void reload() throws IOException {
+        if (configFile == null) {
+            return;
+        }
+        long modifiedTime = Files.getLastModifiedTime(configFile).toMillis();
+        List<TenantConfig> configs = MAPPER.readValue(configFile.toFile(), new TypeReference<List<TenantConfig>>() { });
+        snapshot = build(configs, defaultExpiration);
+        loadedModifiedTime = modifiedTime;
+        log.info("Loaded {} tenants from {}", snapshot.byId.size(), configFile);
+    }
+
+    /**
+     * 按签发者查找租户
+     * @return 租户不存在或已停用时返回null
+     */
+    public Tenant findByIssuer(String issuer) {
+        return issuer == null ? null : snapshot.byIssuer.get(issuer);
+    }
+
+    /**
+     * 按租户ID查找租户（不包括默认租户）
+     * @return 租户不存在或已停用时返回null
+     */
+    public Tenant findById(String tenantId) {
+        return tenantId == null ? null : snapshot.byId.get(tenantId);
+    }
+
+    /**
+     * 租户是否存在且可用，默认租户总是可用
+     */
+    public boolean isActive(String tenantId) {
+        return TenantContextHolder.DEFAULT_TENANT.equals(tenantId) || snapshot.byId.containsKey(tenantId);
+    }
+
+    /**
+     * 租户的token有效期，未单独配置时为jwt.expiration
+     */
+    public long getExpiration(String tenantId) {
+        Tenant tenant = findById(tenantId);
+        return tenant == null ? defaultExpiration : tenant.getExpiration();
+    }
+
+    public Collection<Tenant> getTenants() {
+        return snapshot.byId.values();
+    }
+
+    static Snapshot build(List<TenantConfig> configs, long defaultExpiration) {
+        Map<String, Tenant> byId = new HashMap<>();
+        Map<String, Tenant> byIssuer = new HashMap<>();
+        for (TenantConfig config : configs) {
+            String id = config.getId();
+            if (id == null || id.isEmpty() || TenantContextHolder.DEFAULT_TENANT.equals(id)) {
+                throw new IllegalArgumentException("Invalid tenant id: " + id);
+            }
+            if (config.getIssuer() == null || config.getIssuer().isEmpty()) {
+                throw new IllegalArgumentException("Tenant " + id + " has no issuer");
+            }
+            if (!config.isEnabled()) {
+                continue;
+            }
+            Key signingKey = signingKey(id, config.getSecret());
+            long expiration = config.getExpirationMs() == null ? defaultExpiration : config.getExpirationMs();
+            Tenant tenant = new Tenant(id, config.getIssuer(), signingKey, expiration);
+            if (byId.putIfAbsent(id, tenant) != null) {
+                throw new IllegalArgumentException("Duplicate tenant id: " + id);
+            }
+            if (byIssuer.putIfAbsent(config.getIssuer(), tenant) != null) {
+                throw new IllegalArgumentException("Duplicate tenant issuer: " + config.getIssuer());
+            }
+        }
+        return new Snapshot(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byIssuer));
+    }
+
+    /**
+     * 由base64编码的密钥构建HS256签名密钥，默认租户（jwt.secret）与文件中的租户使用同一规则
+     * 密钥算法固定为HmacSHA256，与token头部的alg一致，不随密钥长度变化
+     * @throws IllegalArgumentException 密钥不是有效的base64或不足32字节时
+     */
+    public static Key signingKey(String tenantId, String secret) {
+        return new SecretKeySpec(decodeSecret(tenantId, secret), "HmacSHA256");
+    }
+
+    private static byte[] decodeSecret(String tenantId, String secret) {
+        byte[] bytes;
+        try {
+            bytes = secret == null ? new byte[0] : Base64.getDecoder().decode(secret);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " secret is not valid base64");
+        }
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " secret must be at least "
+                    + MIN_SECRET_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * 某一时刻的全部租户，创建后不再修改
+     */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+        private final Map<String, Tenant> byId;
+        private final Map<String, Tenant> byIssuer;
+
+        Snapshot(Map<String, Tenant> byId, Map<String, Tenant> byIssuer) {
+            this.byId = byId;
+            this.byIssuer = byIssuer;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.jwtauth.util;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑令牌的声明集合
+ * 使用CWT(RFC 8392)风格的整数键代替JSON字段名，值只支持整数、字符串和字符串列表
+ */
+public class CompactClaims {
+
+    // CWT标准声明键
+    public static final int ISSUER = 1;
+    public static final int SUBJECT = 2;
+    public static final int EXPIRATION = 4;
+    public static final int ISSUED_AT = 6;
+    public static final int TOKEN_ID = 7;
+
+    // 私有声明键：CWT为私有用途保留了小于-65536的整数
+    public static final int PERMISSIONS = -65537;
+
+    private final Map<Integer, Object> values;
+
+    public CompactClaims() {
+        this.values = new LinkedHashMap<>();
+    }
+
+    CompactClaims(Map<Integer, Object> values) {
+        this.values = values;
+    }
+
+    public CompactClaims put(int key, Object value) {
+        if (value != null) {
+            values.put(key, value);
+        }
+        return this;
+    }
+
+    public Object get(int key) {
+        return values.get(key);
+    }
+
+    public String getString(int key) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public Long getLong(int key) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getStringList(int key) {
+        Object value = values.get(key);
+        return value instanceof List ? (List<String>) value : Collections.emptyList();
+    }
+
+    public String getIssuer() {
+        return getString(ISSUER);
+    }
+
+    public String getSubject() {
+        return getString(SUBJECT);
+    }
+
+    public String getId() {
+        return getString(TOKEN_ID);
+    }
+
+    public Long getPermissions() {
+        return getLong(PERMISSIONS);
+    }
+
+    // 时间类声明以秒为单位存储，与JWT的NumericDate一致
+    public Date getIssuedAt() {
+        return toDate(getLong(ISSUED_AT));
+    }
+
+    public Date getExpiration() {
+        return toDate(getLong(EXPIRATION));
+    }
+
+    public CompactClaims setIssuer(String issuer) {
+        return put(ISSUER, issuer);
+    }
+
+    public CompactClaims setSubject(String subject) {
+        return put(SUBJECT, subject);
+    }
+
+    public CompactClaims setId(String id) {
+        return put(TOKEN_ID, id);
+    }
+
+    public CompactClaims setPermissions(Long permissions) {
+        return put(PERMISSIONS, permissions);
+    }
+
+    public CompactClaims setIssuedAt(Date issuedAt) {
+        return put(ISSUED_AT, toSeconds(issuedAt));
+    }
+
+    public CompactClaims setExpiration(Date expiration) {
+        return put(EXPIRATION, toSeconds(expiration));
+    }
+
+    Map<Integer, Object> asMap() {
+        return values;
+    }
+
+    private static Date toDate(Long seconds) {
+        return seconds == null ? null : new Date(seconds * 1000L);
+    }
+
+    private static Long toSeconds(Date date) {
+        return date == null ? null : date.getTime() / 1000L;
+    }
+}
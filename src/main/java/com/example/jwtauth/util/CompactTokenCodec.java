@@ -0,0 +1,274 @@
+/**
+ * 紧凑令牌(Compact Token)格式说明：
+ * 1. 仅用于内部服务之间的调用，外部客户端仍然使用标准JWT
+ * 2. 格式为 base64url(CBOR声明) + "." + base64url(HMAC-SHA256签名)，只有一个点号
+ * 3. 声明使用整数键（参见CompactClaims），比JSON字段名和Base64头部短得多
+ * 4. 签名与标准JWT使用同一把密钥和同一算法(HS256)
+ * 5. 验证时先校验签名，再直接解析CBOR字节，不经过Jackson
+ */
+
+package com.example.jwtauth.util;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompactTokenCodec {
+
+    // CBOR主类型
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final HmacEngine hmacEngine;
+
+    public CompactTokenCodec(Key key) {
+        this(new HmacEngine(key));
+    }
+
+    public CompactTokenCodec(HmacEngine hmacEngine) {
+        this.hmacEngine = hmacEngine;
+    }
+
+    /**
+     * 判断是否为紧凑令牌（恰好一个点号；标准JWT有两个）
+     */
+    public static boolean isCompact(String token) {
+        int dot = token.indexOf('.');
+        return dot > 0 && dot < token.length() - 1 && token.indexOf('.', dot + 1) < 0;
+    }
+
+    /**
+     * 读取签发者但不校验签名，只用于选择验签密钥
+     * @return 未设置签发者时返回null
+     */
+    public static String peekIssuer(String token) {
+        if (!isCompact(token)) {
+            throw new MalformedJwtException("Compact token must contain exactly 1 period character");
+        }
+        byte[] body;
+        try {
+            body = DECODER.decode(token.substring(0, token.indexOf('.')));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Compact token is not valid base64url", e);
+        }
+        Object issuer = readMap(body).get(CompactClaims.ISSUER);
+        return issuer instanceof String ? (String) issuer : null;
+    }
+
+    /**
+     * 编码并签名
+     */
+    public String encode(CompactClaims claims) {
+        String payload = ENCODER.encodeToString(writeMap(claims.asMap()));
+        byte[] signature = hmacEngine.sign(payload.getBytes(StandardCharsets.US_ASCII));
+        return payload + "." + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * 校验签名和过期时间后解码
+     */
+    public CompactClaims decode(String token) {
+        if (!isCompact(token)) {
+            throw new MalformedJwtException("Compact token must contain exactly 1 period character");
+        }
+        int dot = token.indexOf('.');
+        String payload = token.substring(0, dot);
+
+        byte[] signature;
+        byte[] body;
+        try {
+            signature = DECODER.decode(token.substring(dot + 1));
+            body = DECODER.decode(payload);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Compact token is not valid base64url", e);
+        }
+        if (!hmacEngine.verify(payload.getBytes(StandardCharsets.US_ASCII), signature)) {
+            throw new SignatureException("Compact token signature does not match");
+        }
+
+        CompactClaims claims = new CompactClaims(readMap(body));
+        Long exp = claims.getLong(CompactClaims.EXPIRATION);
+        if (exp != null && exp * 1000L < System.currentTimeMillis()) {
+            throw new ExpiredJwtException(null, null, "Compact token has expired");
+        }
+        return claims;
+    }
+
+    // ---------------- CBOR编码 ----------------
+
+    private static byte[] writeMap(Map<Integer, Object> map) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeHead(out, MAJOR_MAP, map.size());
+        for (Map.Entry<Integer, Object> entry : map.entrySet()) {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value instanceof Number) {
+            long number = ((Number) value).longValue();
+            if (number >= 0) {
+                writeHead(out, MAJOR_UNSIGNED, number);
+            } else {
+                writeHead(out, MAJOR_NEGATIVE, -1 - number);
+            }
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeHead(out, MAJOR_TEXT, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            writeHead(out, MAJOR_ARRAY, list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported compact claim type: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeHead(ByteArrayOutputStream out, int major, long argument) {
+        int type = major << 5;
+        if (argument < 24) {
+            out.write(type | (int) argument);
+        } else if (argument <= 0xFFL) {
+            out.write(type | 24);
+            out.write((int) argument);
+        } else if (argument <= 0xFFFFL) {
+            out.write(type | 25);
+            writeBytes(out, argument, 2);
+        } else if (argument <= 0xFFFFFFFFL) {
+            out.write(type | 26);
+            writeBytes(out, argument, 4);
+        } else {
+            out.write(type | 27);
+            writeBytes(out, argument, 8);
+        }
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, long value, int length) {
+        for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xFF);
+        }
+    }
+
+    // ---------------- CBOR解码 ----------------
+
+    private static Map<Integer, Object> readMap(byte[] data) {
+        Reader reader = new Reader(data);
+        if (reader.peekMajor() != MAJOR_MAP) {
+            throw new MalformedJwtException("Compact token payload must be a CBOR map");
+        }
+        long size = reader.readHead();
+        Map<Integer, Object> map = new LinkedHashMap<>();
+        for (long i = 0; i < size; i++) {
+            Object key = reader.readValue();
+            if (!(key instanceof Long)) {
+                throw new MalformedJwtException("Compact token claim keys must be integers");
+            }
+            map.put(((Long) key).intValue(), reader.readValue());
+        }
+        if (reader.position != data.length) {
+            throw new MalformedJwtException("Unexpected trailing bytes in compact token");
+        }
+        return map;
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int peekMajor() {
+            ensure(1);
+            return (data[position] & 0xFF) >>> 5;
+        }
+
+        long readHead() {
+            ensure(1);
+            int additional = data[position++] & 0x1F;
+            if (additional < 24) {
+                return additional;
+            }
+            int length;
+            switch (additional) {
+                case 24: length = 1; break;
+                case 25: length = 2; break;
+                case 26: length = 4; break;
+                case 27: length = 8; break;
+                default: throw new MalformedJwtException("Unsupported CBOR length encoding");
+            }
+            ensure(length);
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            if (value < 0) {
+                throw new MalformedJwtException("CBOR integer out of range");
+            }
+            return value;
+        }
+
+        Object readValue() {
+            int major = peekMajor();
+            long argument = readHead();
+            switch (major) {
+                case MAJOR_UNSIGNED:
+                    return argument;
+                case MAJOR_NEGATIVE:
+                    return -1 - argument;
+                case MAJOR_TEXT: {
+                    int length = checkedLength(argument);
+                    ensure(length);
+                    String text = new String(data, position, length, StandardCharsets.UTF_8);
+                    position += length;
+                    return text;
+                }
+                case MAJOR_ARRAY: {
+                    int length = checkedLength(argument);
+                    List<Object> items = new ArrayList<>(length);
+                    for (int i = 0; i < length; i++) {
+                        items.add(readValue());
+                    }
+                    return items;
+                }
+                default:
+                    throw new MalformedJwtException("Unsupported CBOR type in compact token: " + major);
+            }
+        }
+
+        private int checkedLength(long argument) {
+            // 长度不可能超过剩余字节数，防止恶意令牌申请超大数组
+            if (argument > data.length - position) {
+                throw new MalformedJwtException("CBOR length exceeds compact token size");
+            }
+            return (int) argument;
+        }
+
+        private void ensure(int length) {
+            if (position + length > data.length) {
+                throw new MalformedJwtException("Truncated compact token");
+            }
+        }
+    }
+}
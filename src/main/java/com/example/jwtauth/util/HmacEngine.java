@@ -0,0 +1,53 @@
+package com.example.jwtauth.util;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+
+/**
+ * HMAC签名引擎
+ * 每个线程持有一个已用密钥初始化好的Mac实例，签名和验签时只剩哈希计算，
+ * 不再重复执行Mac.getInstance的Provider查找和密钥初始化
+ */
+public class HmacEngine {
+
+    private final Key key;
+    private final ThreadLocal<Mac> macs;
+
+    public HmacEngine(Key key) {
+        this.key = key;
+        // 立即创建一次，密钥或算法不可用时在启动阶段就失败
+        Mac first = newMac();
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.macs.set(first);
+    }
+
+    /**
+     * 计算签名，doFinal会自动重置Mac，可直接复用
+     */
+    public byte[] sign(byte[] data) {
+        return macs.get().doFinal(data);
+    }
+
+    /**
+     * 常量时间比较签名，避免时序攻击
+     */
+    public boolean verify(byte[] data, byte[] signature) {
+        return MessageDigest.isEqual(sign(data), signature);
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(key.getAlgorithm());
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize HMAC for algorithm " + key.getAlgorithm(), e);
+        }
+    }
+}
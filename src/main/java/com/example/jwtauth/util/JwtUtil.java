@@ -6,54 +6,128 @@
  * 4. 客户端在后续的请求中，在Header中携带这个token
  * 5. 服务器通过validateToken方法验证token的有效性
  * 6. 如果token有效，允许访问；如果无效或过期，拒绝请求
+ *
+ * 性能说明：
+ * - 解析器在初始化时构建一次，JwtParser本身不可变且线程安全
+ * - 签名通过HmacEngine完成，每个线程复用已初始化的Mac，每个token只剩哈希计算
+ *
+ * 多租户：
+ * - 签发时按当前租户（TenantContextHolder）选择密钥和有效期，写入iss和租户声明(tid)
+ * - 验证时按iss从TenantRegistry的内存快照中找到租户密钥，不访问数据库
+ * - 没有iss（或iss等于jwt.issuer）的token属于默认租户，密钥由jwt.secret构建，所有节点一致
+ *
+ * 权限：
+ * - 签发时把用户角色展开后的权限掩码写入pm声明（紧凑令牌使用CompactClaims.PERMISSIONS）
+ * - 掩码是一个整数，管理员也只有几个字节；验证后直接用于权限检查，不再遍历角色
  */
 
 package com.example.jwtauth.util;
 
+import com.example.jwtauth.security.Role;
+import com.example.jwtauth.tenant.Tenant;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import com.example.jwtauth.tenant.TenantRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    // 固定的JWS头部 {"alg":"HS256"}，预先编码好
+    private static final String JWS_HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    // 只用于序列化声明，ObjectMapper线程安全
+    private static final ObjectMapper CLAIMS_MAPPER = new ObjectMapper();
+
+    // 租户声明的名称
+    public static final String TENANT_CLAIM = "tid";
+
+    // 权限掩码声明的名称
+    public static final String PERMISSIONS_CLAIM = "pm";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // 是否接受内部服务使用的紧凑令牌
+    @Value("${jwt.compact.enabled:false}")
+    private boolean compactEnabled;
+
+    // 默认租户的签发者，为空时默认租户的token不带iss
+    @Value("${jwt.issuer:}")
+    private String issuer;
+
+    // 其他租户的密钥和有效期；单独使用本类时（如单元测试）只有默认租户
+    @Autowired(required = false)
+    private TenantRegistry tenantRegistry;
+
     private Key signingKey;
 
+    private Tenant defaultTenant;
+
+    private JwtParser jwtParser;
+
     @PostConstruct
     public void init() {
-        // Generate a secure key using Keys.secretKeyFor
-        this.signingKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-    }
-
-    // 用于签名JWT的密钥
-    private Key getSigningKey() {
-        return signingKey;
+        // 默认租户的密钥来自配置（base64，至少32字节），多个节点签发的token可以互相验证
+        try {
+            this.signingKey = TenantRegistry.signingKey(TenantContextHolder.DEFAULT_TENANT, secret);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("jwt.secret must be a base64-encoded key of at least 32 bytes", e);
+        }
+        // 签名引擎和紧凑令牌编解码器都只按密钥构建一次，紧凑令牌与标准JWT共用同一把密钥
+        this.defaultTenant = new Tenant(TenantContextHolder.DEFAULT_TENANT,
+                issuer == null || issuer.isEmpty() ? null : issuer, signingKey, expiration);
+        // 解析器只构建一次，验签密钥按iss从内存中的租户快照选择
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveTenant(claims.getIssuer()).getSigningKey();
+                    }
+                })
+                .build();
     }
 
     // 从token中提取用户名
     public String extractUsername(String token) {
+        if (isCompactToken(token)) {
+            return decodeCompact(token).getSubject();
+        }
         return extractClaim(token, Claims::getSubject);
     }
 
     // 从token中提取过期时间
     public Date extractExpiration(String token) {
+        if (isCompactToken(token)) {
+            return decodeCompact(token).getExpiration();
+        }
         return extractClaim(token, Claims::getExpiration);
     }
 
@@ -65,39 +139,156 @@ public class JwtUtil {
 
     // 解析token获取所有的claims
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    // 检查token是否过期
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // 解析并验签token，标准JWT和紧凑令牌统一返回TokenClaims
+    public TokenClaims parseToken(String token) {
+        if (isCompactToken(token)) {
+            CompactClaims claims = decodeCompact(token);
+            return new TokenClaims(claims.getSubject(), claims.getId(), claims.getIssuedAt(), claims.getExpiration(),
+                    resolveTenant(claims.getIssuer()).getId(), claims.getPermissions());
+        }
+        Claims claims = extractAllClaims(token);
+        String tenantId = resolveTenant(claims.getIssuer()).getId();
+        Object tokenTenant = claims.get(TENANT_CLAIM);
+        if (tokenTenant != null && !tenantId.equals(tokenTenant)) {
+            throw new UnsupportedJwtException("Token tenant does not match its issuer");
+        }
+        Object permissions = claims.get(PERMISSIONS_CLAIM);
+        return new TokenClaims(claims.getSubject(), claims.getId(), claims.getIssuedAt(), claims.getExpiration(), tenantId,
+                permissions instanceof Number ? ((Number) permissions).longValue() : null);
     }
 
     // 为用户生成token
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         // 这里可以添加额外的信息到token中
+        claims.put(PERMISSIONS_CLAIM, Role.maskOfAuthorities(userDetails.getAuthorities()));
+        return createToken(claims, userDetails.getUsername());
+    }
+
+    // 为用户生成带token ID的token，token ID对应会话登记中的一条记录
+    public String generateToken(UserDetails userDetails, String tokenId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(Claims.ID, tokenId);
+        claims.put(PERMISSIONS_CLAIM, Role.maskOfAuthorities(userDetails.getAuthorities()));
         return createToken(claims, userDetails.getUsername());
     }
 
-    // 创建token
+    // 创建token：直接拼接 header.payload.signature，签名使用当前租户线程复用的Mac
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder()
-                .setClaims(claims)                 // 设置自定义信息
-                .setSubject(subject)              // 设置用户名
-                .setIssuedAt(new Date())          // 设置token创建时间
-                .setExpiration(new Date(System.currentTimeMillis() + expiration)) // 设置过期时间
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256) // 使用HS256算法签名
-                .compact();
+        Tenant tenant = currentTenant();
+        long now = System.currentTimeMillis();
+        Map<String, Object> body = new LinkedHashMap<>(claims);
+        if (tenant.getIssuer() != null) {
+            body.put(Claims.ISSUER, tenant.getIssuer());          // 设置签发者，验证时据此选择密钥
+        }
+        body.put(TENANT_CLAIM, tenant.getId());                   // 设置租户
+        body.put(Claims.SUBJECT, subject);                        // 设置用户名
+        body.put(Claims.ISSUED_AT, now / 1000L);                  // 设置token创建时间（秒）
+        body.put(Claims.EXPIRATION, (now + expirationOf(tenant)) / 1000L);  // 设置过期时间（秒）
+
+        String signingInput = JWS_HEADER + "." + ENCODER.encodeToString(serialize(body));
+        byte[] signature = tenant.getHmacEngine().sign(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + ENCODER.encodeToString(signature);
     }
 
-    // 验证token是否有效
+    private static byte[] serialize(Map<String, Object> body) {
+        try {
+            return CLAIMS_MAPPER.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize JWT claims", e);
+        }
+    }
+
+    // 为内部服务调用生成紧凑令牌
+    public String generateCompactToken(UserDetails userDetails) {
+        return generateCompactToken(userDetails, null);
+    }
+
+    // 为内部服务调用生成带token ID的紧凑令牌
+    public String generateCompactToken(UserDetails userDetails, String tokenId) {
+        Tenant tenant = currentTenant();
+        long now = System.currentTimeMillis();
+        CompactClaims claims = new CompactClaims()
+                .setIssuer(tenant.getIssuer())
+                .setSubject(userDetails.getUsername())
+                .setId(tokenId)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expirationOf(tenant)))
+                .setPermissions(Role.maskOfAuthorities(userDetails.getAuthorities()));
+        return tenant.getCompactTokenCodec().encode(claims);
+    }
+
+    public boolean isCompactEnabled() {
+        return compactEnabled;
+    }
+
+    // 密钥、签名引擎和解析器是否都已初始化，就绪探针依赖该状态
+    public boolean isKeyMaterialReady() {
+        return defaultTenant != null && jwtParser != null;
+    }
+
+    // 当前请求所属租户，用于签发token
+    private Tenant currentTenant() {
+        String tenantId = TenantContextHolder.getTenantId();
+        if (TenantContextHolder.DEFAULT_TENANT.equals(tenantId)) {
+            return defaultTenant;
+        }
+        Tenant tenant = tenantRegistry == null ? null : tenantRegistry.findById(tenantId);
+        if (tenant == null) {
+            throw new IllegalStateException("Unknown or disabled tenant: " + tenantId);
+        }
+        return tenant;
+    }
+
+    // 按签发者找到租户；没有签发者的token属于默认租户
+    private Tenant resolveTenant(String tokenIssuer) {
+        if (tokenIssuer == null || tokenIssuer.equals(defaultTenant.getIssuer())) {
+            return defaultTenant;
+        }
+        Tenant tenant = tenantRegistry == null ? null : tenantRegistry.findByIssuer(tokenIssuer);
+        if (tenant == null) {
+            throw new UnsupportedJwtException("Unknown token issuer: " + tokenIssuer);
+        }
+        return tenant;
+    }
+
+    // 默认租户的有效期直接读取配置字段
+    private long expirationOf(Tenant tenant) {
+        return tenant == defaultTenant ? expiration : tenant.getExpiration();
+    }
+
+    // 紧凑令牌先读取签发者，再用对应租户的密钥验签
+    private CompactClaims decodeCompact(String token) {
+        return resolveTenant(CompactTokenCodec.peekIssuer(token)).getCompactTokenCodec().decode(token);
+    }
+
+    // 未启用紧凑令牌时按标准JWT解析，会因格式不符而被拒绝
+    private boolean isCompactToken(String token) {
+        return compactEnabled && CompactTokenCodec.isCompact(token);
+    }
+
+    // 验证token是否有效，只解析一次token
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final TokenClaims claims;
+        try {
+            claims = parseToken(token);
+        } catch (ExpiredJwtException e) {
+            // 过期的token视为无效
+            return false;
+        }
+        return validateToken(claims, userDetails);
+    }
+
+    // 验证已解析的token声明是否属于该用户且未过期
+    public boolean validateToken(TokenClaims claims, UserDetails userDetails) {
+        Date expirationDate = claims.getExpiration();
+        return claims.getSubject() != null
+                && claims.getSubject().equals(userDetails.getUsername())
+                && (expirationDate == null || !expirationDate.before(new Date()));
     }
-} 
\ No newline at end of file
+}
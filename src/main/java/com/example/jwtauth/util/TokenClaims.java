@@ -0,0 +1,21 @@
+package com.example.jwtauth.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 验签后的token声明
+ * 标准JWT和紧凑令牌解析后统一成该结构，过滤器只需解析一次token
+ */
+@Getter
+@AllArgsConstructor
+public class TokenClaims {
+    private final String subject;      // 用户名
+    private final String id;           // token ID(jti)，用于会话登记
+    private final Date issuedAt;       // 签发时间
+    private final Date expiration;     // 过期时间
+    private final String tenantId;     // 租户ID，由签发者(iss)确定
+    private final Long permissions;    // 权限掩码(pm)，旧token没有该声明时为null
+}
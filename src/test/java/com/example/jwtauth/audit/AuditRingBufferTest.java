@@ -0,0 +1,81 @@
+package com.example.jwtauth.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRingBufferTest {
+
+    @Test
+    void whenCapacityNotPowerOfTwo_thenRoundedUp() {
+        assertEquals(8, new AuditRingBuffer<String>(5).capacity());
+        assertEquals(8, new AuditRingBuffer<String>(8).capacity());
+    }
+
+    @Test
+    void whenBufferFull_thenOfferFailsWithoutBlocking() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        // 已满时立即返回false
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        // 取出一个后可以继续写入，顺序保持先进先出
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void whenConcurrentProducers_thenNoEventLost() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        int producers = 8;
+        int perProducer = 10000;
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    // 满了就让出CPU等待消费者
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        // 单消费者持续取出，超时说明有事件丢失
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (received.size() < producers * perProducer) {
+            assertTrue(System.nanoTime() < deadline, "timed out after " + received.size() + " events");
+            Integer value = buffer.poll();
+            if (value != null) {
+                assertTrue(received.add(value), "duplicate value " + value);
+            } else {
+                Thread.yield();
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(producers * perProducer, received.size());
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * JwtUtil签名/验签基准测试（JMH）
+ *
+ * 对比两种实现：
+ * - legacy：原实现，每次调用都新建JwtParser、通过Jwts.builder()重新初始化签名
+ * - current：预构建解析器 + HmacEngine线程复用Mac
+ *
+ * 分别以1、8、64个线程运行：
+ *   mvn test-compile exec:java -Dexec.mainClass=com.example.jwtauth.benchmark.JwtUtilBenchmark -Dexec.classpathScope=test
+ */
+
+package com.example.jwtauth.benchmark;
+
+import com.example.jwtauth.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final long EXPIRATION = 3600000L;
+
+    private JwtUtil jwtUtil;
+    private Key signingKey;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", EXPIRATION);
+        jwtUtil.init();
+        // 两种实现使用同一把密钥，验签的是同一个token
+        signingKey = (Key) ReflectionTestUtils.getField(jwtUtil, "signingKey");
+
+        userDetails = User.withUsername("benchUser")
+                .password("password")
+                .authorities(new ArrayList<>())
+                .build();
+        token = jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String createTokenCurrent() {
+        return jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String createTokenLegacy() {
+        return Jwts.builder()
+                .setClaims(new HashMap<>())
+                .setSubject(userDetails.getUsername())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public boolean validateTokenCurrent() {
+        return jwtUtil.validateToken(token, userDetails);
+    }
+
+    @Benchmark
+    public boolean validateTokenLegacy() {
+        // 原validateToken：分别提取用户名和过期时间，每次都重新构建解析器
+        String username = legacyClaims(token).getSubject();
+        Date expiration = legacyClaims(token).getExpiration();
+        return username.equals(userDetails.getUsername()) && !expiration.before(new Date());
+    }
+
+    private Claims legacyClaims(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 8, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(JwtUtilBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
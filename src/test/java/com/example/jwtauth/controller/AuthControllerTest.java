@@ -1,7 +1,10 @@
 package com.example.jwtauth.controller;
 
 import com.example.jwtauth.dto.AuthRequest;
+import com.example.jwtauth.dto.RegisterRequest;
 import com.example.jwtauth.entity.User;
+import com.example.jwtauth.exception.UsernameAlreadyExistsException;
+import com.example.jwtauth.service.SessionService;
 import com.example.jwtauth.service.UserService;
 import com.example.jwtauth.util.JwtUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,6 +24,8 @@ import java.util.Arrays;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,10 +45,14 @@ class AuthControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private SessionService sessionService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     private User testUser;
+    private RegisterRequest registerRequest;
     private Authentication authentication;
 
     @BeforeEach
@@ -55,6 +64,7 @@ class AuthControllerTest {
         testUser.setRoles(Arrays.asList("USER"));
 
         authentication = new UsernamePasswordAuthenticationToken(testUser, null, testUser.getAuthorities());
+        registerRequest = new RegisterRequest("testUser", "password", "test@example.com");
     }
 
     @Test
@@ -66,7 +76,8 @@ class AuthControllerTest {
 
         // Mock认证
         when(authenticationManager.authenticate(any())).thenReturn(authentication);
-        when(jwtUtil.generateToken(any())).thenReturn("test-token");
+        when(sessionService.register(any(), any())).thenReturn("test-jti");
+        when(jwtUtil.generateToken(any(), any())).thenReturn("test-token");
 
         // 执行测试
         mockMvc.perform(post("/api/auth/login")
@@ -86,21 +97,61 @@ class AuthControllerTest {
         // 执行测试
         mockMvc.perform(post("/api/auth/register")
                 .contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(testUser)))
+                .content(objectMapper.writeValueAsString(registerRequest)))
                 .andExpect(status().isOk())
                 .andExpect(content().string("User registered successfully!"));
     }
 
     @Test
-    void whenRegisterExistingUsername_thenFails() throws Exception {
+    void whenRegisterExistingUsername_thenConflict() throws Exception {
         // Mock用户已存在
-        when(userService.existsByUsername(any())).thenReturn(true);
+        when(userService.registerUser(any())).thenThrow(new UsernameAlreadyExistsException("testUser"));
 
         // 执行测试
         mockMvc.perform(post("/api/auth/register")
                 .contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(testUser)))
-                .andExpect(status().isBadRequest())
+                .content(objectMapper.writeValueAsString(registerRequest)))
+                .andExpect(status().isConflict())
                 .andExpect(content().string("Error: Username is already taken!"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void whenGetCurrentUser_thenReturnsDtoWithETag() throws Exception {
+        // 第一次请求返回用户信息和ETag，且不包含密码
+        String eTag = mockMvc.perform(get("/api/auth/me").with(authentication(authentication)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("testUser"))
+                .andExpect(jsonPath("$.roles[0]").value("USER"))
+                .andExpect(jsonPath("$.password").doesNotExist())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // 携带相同ETag再次请求返回304
+        mockMvc.perform(get("/api/auth/me")
+                .with(authentication(authentication))
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void whenUserLacksPermission_thenForbidden() throws Exception {
+        // 没有任何已知角色的用户权限掩码为0
+        testUser.setRoles(Arrays.asList("GUEST"));
+        Authentication guest = new UsernamePasswordAuthenticationToken(testUser, null, testUser.getAuthorities());
+
+        mockMvc.perform(get("/api/auth/me").with(authentication(guest)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/test").with(authentication(guest)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void whenUnauthenticated_thenUnauthorizedWithErrorBody() throws Exception {
+        // 未认证请求由安全层直接写出错误响应，格式与全局异常处理一致
+        mockMvc.perform(get("/api/auth/me"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.status").value(401))
+                .andExpect(jsonPath("$.path").value("uri=/api/auth/me"))
+                .andExpect(jsonPath("$.timestamp").exists());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.jwtauth.invalidation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationBusTest {
+
+    private LocalInvalidationTransport transport;
+    private InvalidationBus nodeA;
+    private InvalidationBus nodeB;
+    private List<String> receivedByA;
+    private List<String> receivedByB;
+
+    @BeforeEach
+    void setUp() {
+        // 两个总线共用一个进程内传输，模拟两个节点
+        transport = new LocalInvalidationTransport();
+        nodeA = new InvalidationBus(transport, 100);
+        nodeB = new InvalidationBus(transport, 100);
+        nodeA.start();
+        nodeB.start();
+
+        receivedByA = Collections.synchronizedList(new ArrayList<>());
+        receivedByB = Collections.synchronizedList(new ArrayList<>());
+        nodeA.subscribe(InvalidationTopic.API_KEY, receivedByA::add);
+        nodeB.subscribe(InvalidationTopic.API_KEY, receivedByB::add);
+    }
+
+    @Test
+    void whenPublished_thenOtherNodesReceiveAfterFlush() {
+        nodeA.publish(InvalidationTopic.API_KEY, "hash-1");
+        // flush之前不发送
+        assertTrue(receivedByB.isEmpty());
+
+        nodeA.flush();
+
+        assertEquals(Collections.singletonList("hash-1"), receivedByB);
+        // 本节点的缓存由修改方自己更新，不会收到自己的通知
+        assertTrue(receivedByA.isEmpty());
+    }
+
+    @Test
+    void whenSameKeyPublishedRepeatedly_thenCoalesced() {
+        nodeA.publish(InvalidationTopic.API_KEY, "hash-1");
+        nodeA.publish(InvalidationTopic.API_KEY, "hash-1");
+        nodeA.publish(InvalidationTopic.API_KEY, "hash-2");
+        nodeA.flush();
+
+        assertEquals(2, receivedByB.size());
+        assertTrue(receivedByB.containsAll(Arrays.asList("hash-1", "hash-2")));
+    }
+
+    @Test
+    void whenKeyHasSpecialCharacters_thenDeliveredUnchanged() {
+        List<String> users = new ArrayList<>();
+        nodeB.subscribe(InvalidationTopic.USER, users::add);
+
+        String userKey = "acme\u0000user name\nwith newline";
+        nodeA.publish(InvalidationTopic.USER, userKey);
+        nodeA.flush();
+
+        assertEquals(Collections.singletonList(userKey), users);
+        // 不同主题的订阅者互不影响
+        assertTrue(receivedByB.isEmpty());
+    }
+
+    @Test
+    void whenTooManyPending_thenOtherNodesReset() {
+        for (int i = 0; i < 150; i++) {
+            nodeA.publish(InvalidationTopic.API_KEY, "hash-" + i);
+        }
+        nodeA.flush();
+
+        // 超过上限后改为一条重置消息，订阅者收到null
+        assertEquals(Collections.singletonList(null), receivedByB);
+    }
+}
@@ -0,0 +1,369 @@
+/**
+ * 端到端负载测试工具
+ *
+ * 启动（或连接）一个应用实例，按流量配比并发发送login、register、/me和受保护接口请求，
+ * 受保护请求按配比携带有效、过期或伪造的token，最后输出每种请求的吞吐量和延迟分布。
+ * 用于对比JwtAuthenticationFilter、UserServiceImpl、SecurityConfig等改动前后的表现。
+ *
+ * 运行方式：
+ *   mvn test-compile exec:java -Dexec.mainClass=com.example.jwtauth.loadtest.AuthLoadHarness -Dexec.classpathScope=test \
+ *       -Dloadtest.target=h2 -Dloadtest.mix=default -Dloadtest.label=before
+ *
+ * 参数（系统属性）：
+ *   loadtest.target            h2（默认，进程内启动，嵌入式H2）、postgres（进程内启动，连接docker-compose的PostgreSQL）、
+ *                              memory（进程内启动，内存用户存储）或 http://host:port（已运行的实例）
+ *   loadtest.mix               预设配比：default、login-storm、attack
+ *   loadtest.operations        自定义操作配比，如 login=10,register=2,me=44,protected=44
+ *   loadtest.tokens            自定义token配比，如 valid=90,expired=5,forged=5
+ *   loadtest.threads           并发线程数，默认16
+ *   loadtest.duration-seconds  计入统计的运行时长，默认60
+ *   loadtest.warmup-seconds    不计入统计的预热时长，默认10
+ *   loadtest.rate              总目标速率（请求/秒），0表示闭环压测；大于0时按期望间隔修正协调遗漏
+ *   loadtest.seed              随机种子，相同种子和线程数产生相同的请求序列，默认42
+ *   loadtest.users             预先注册并登录的用户数，默认50
+ *   loadtest.label             本次运行的名称，结果写入 target/loadtest/<label>/
+ *   loadtest.baseline          基线运行的名称，汇总表中附带与基线的差异
+ *
+ * 说明：
+ * - 进程内启动时，过期token通过临时把JwtUtil的有效期设为负数签发，与真实过期token走相同的拒绝路径
+ * - 连接外部实例时拿不到签名密钥，过期token只能用随机签名构造，会在验签阶段就被拒绝
+ * - 所有请求来自同一地址，进程内启动时关闭限流，否则login和register很快会被拒绝；连接外部实例时需要自行调整配额
+ */
+
+package com.example.jwtauth.loadtest;
+
+import com.example.jwtauth.JwtAuthApplication;
+import com.example.jwtauth.loadtest.TrafficMix.Operation;
+import com.example.jwtauth.loadtest.TrafficMix.TokenKind;
+import com.example.jwtauth.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class AuthLoadHarness {
+
+    private static final String PASSWORD = "LoadTest#123";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final String baseUrl;
+    private final JwtUtil jwtUtil;
+    private final HttpClient client;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    // 预先登录用户的token，按序号与用户对应
+    private final List<String> validTokens = new ArrayList<>();
+    private final List<String> expiredTokens = new ArrayList<>();
+    private final List<String> forgedTokens = new ArrayList<>();
+    // 只用于login请求的用户，与持有token的用户分开，避免活跃会话上限注销预先登录的会话
+    private final List<String> loginUsers = new ArrayList<>();
+
+    AuthLoadHarness(String baseUrl, JwtUtil jwtUtil, int threads) {
+        this.baseUrl = baseUrl;
+        this.jwtUtil = jwtUtil;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, threads / 4)))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = System.getProperty("loadtest.target", "h2");
+        String mixName = System.getProperty("loadtest.mix", "default");
+        TrafficMix mix = System.getProperty("loadtest.operations") != null
+                ? TrafficMix.parse(System.getProperty("loadtest.operations"),
+                                   System.getProperty("loadtest.tokens", "valid=100"))
+                : TrafficMix.preset(mixName);
+        int threads = Integer.getInteger("loadtest.threads", 16);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 60);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 10);
+        int rate = Integer.getInteger("loadtest.rate", 0);
+        long seed = Long.getLong("loadtest.seed", 42L);
+        int users = Integer.getInteger("loadtest.users", 50);
+        String label = System.getProperty("loadtest.label", "run");
+        String baselineLabel = System.getProperty("loadtest.baseline");
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = target;
+        JwtUtil jwtUtil = null;
+        if (!target.startsWith("http")) {
+            context = start(target);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            jwtUtil = context.getBean(JwtUtil.class);
+        }
+
+        try {
+            AuthLoadHarness harness = new AuthLoadHarness(baseUrl, jwtUtil, threads);
+            System.out.printf("Target %s, mix [%s], %d threads, rate %s, seed %d%n",
+                    baseUrl, mix, threads, rate > 0 ? rate + "/s" : "unbounded", seed);
+            harness.prepare(users, new Random(seed));
+
+            LatencyReport report = harness.run(mix, threads, seed, rate, warmupSeconds, durationSeconds);
+
+            Path output = Paths.get("target", "loadtest", label);
+            Map<String, double[]> baseline = LatencyReport.readBaseline(
+                    baselineLabel == null ? null : Paths.get("target", "loadtest", baselineLabel));
+            report.print(System.out, durationSeconds, baseline);
+            report.write(output, durationSeconds);
+            System.out.println("Histograms written to " + output.toAbsolutePath());
+        } finally {
+            if (context != null) {
+                SpringApplication.exit(context);
+            }
+            System.exit(0);
+        }
+    }
+
+    // 在当前进程内启动应用，端口随机
+    private static ConfigurableApplicationContext start(String target) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--warmup.enabled=true");
+        args.add("--audit.file=target/loadtest/audit.log");
+        args.add("--rate-limit.enabled=false");
+        switch (target) {
+            case "h2":
+                args.add("--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+                args.add("--spring.datasource.username=sa");
+                args.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+                break;
+            case "postgres":
+                // docker-compose up -d postgres 后，数据库映射在本机5432端口
+                args.add("--spring.profiles.active=prod");
+                args.add("--spring.datasource.url=jdbc:postgresql://localhost:5432/jwtauth");
+                args.add("--spring.jpa.hibernate.ddl-auto=update");
+                args.add("--spring.jpa.show-sql=false");
+                break;
+            case "memory":
+                args.add("--spring.profiles.active=memory");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown target: " + target);
+        }
+        return SpringApplication.run(JwtAuthApplication.class, args.toArray(new String[0]));
+    }
+
+    /**
+     * 注册测试用户并准备各类token
+     */
+    void prepare(int users, Random random) throws IOException, InterruptedException {
+        for (int i = 0; i < users; i++) {
+            String username = "lt-" + runId + "-u" + i;
+            expectStatus(send(registerRequest(username)), 200, "register " + username);
+            String token = MAPPER.readTree(expectStatus(send(loginRequest(username)), 200,
+                    "login " + username).body()).path("token").asText();
+            validTokens.add(token);
+            expiredTokens.add(expiredToken(username, random));
+            forgedTokens.add(forge(token, random));
+
+            String loginUser = "lt-" + runId + "-l" + i;
+            expectStatus(send(registerRequest(loginUser)), 200, "register " + loginUser);
+            loginUsers.add(loginUser);
+        }
+    }
+
+    /**
+     * 执行负载：先预热，再在统计窗口内记录延迟
+     */
+    LatencyReport run(TrafficMix mix, int threads, long seed, int rate,
+                      int warmupSeconds, int durationSeconds) throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        // 每个线程分到的发送间隔，0表示闭环
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * threads / rate : 0;
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<LatencyReport>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Random random = new Random(seed * 31 + i);
+            int worker = i;
+            results.add(workers.submit(() -> work(worker, mix, random, start, measureFrom, end, intervalNanos)));
+        }
+        LatencyReport report = new LatencyReport();
+        for (Future<LatencyReport> result : results) {
+            report.merge(result.get());
+        }
+        workers.shutdown();
+        return report;
+    }
+
+    private LatencyReport work(int worker, TrafficMix mix, Random random,
+                               long start, long measureFrom, long end, long intervalNanos) {
+        LatencyReport report = new LatencyReport();
+        long intended = start;
+        int sequence = 0;
+        while (true) {
+            if (intervalNanos > 0) {
+                intended += intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            long sent = intervalNanos > 0 ? intended : System.nanoTime();
+            if (sent >= end) {
+                return report;
+            }
+
+            Operation operation = mix.nextOperation(random);
+            TokenKind tokenKind = operation.needsToken() ? mix.nextTokenKind(random) : null;
+            HttpRequest request = buildRequest(operation, tokenKind, worker, sequence++, random);
+
+            int status;
+            try {
+                status = send(request).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return report;
+            }
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent);
+
+            if (sent >= measureFrom) {
+                String name = operation.name().toLowerCase() + (tokenKind == null ? "" : "/" + tokenKind.name().toLowerCase());
+                boolean expected = isExpected(tokenKind, status);
+                if (intervalNanos > 0) {
+                    report.record(name, latencyMicros, TimeUnit.NANOSECONDS.toMicros(intervalNanos), expected);
+                } else {
+                    report.record(name, latencyMicros, expected);
+                }
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(Operation operation, TokenKind tokenKind, int worker, int sequence, Random random) {
+        switch (operation) {
+            case LOGIN:
+                return loginRequest(loginUsers.get(random.nextInt(loginUsers.size())));
+            case REGISTER:
+                return registerRequest("lt-" + runId + "-w" + worker + "-" + sequence);
+            case ME:
+                return authorized("/api/auth/me", token(tokenKind, random));
+            case PROTECTED:
+            default:
+                return authorized("/test", token(tokenKind, random));
+        }
+    }
+
+    private String token(TokenKind kind, Random random) {
+        int index = random.nextInt(validTokens.size());
+        switch (kind) {
+            case EXPIRED:
+                return expiredTokens.get(index);
+            case FORGED:
+                return forgedTokens.get(index);
+            case VALID:
+            default:
+                return validTokens.get(index);
+        }
+    }
+
+    // 有效token期望200，过期和伪造token期望被拒绝（401或403）
+    private static boolean isExpected(TokenKind tokenKind, int status) {
+        if (tokenKind == null || tokenKind == TokenKind.VALID) {
+            return status == 200;
+        }
+        return status == 401 || status == 403;
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest loginRequest(String username) {
+        return json("/api/auth/login", Map.of("username", username, "password", PASSWORD));
+    }
+
+    private HttpRequest registerRequest(String username) {
+        return json("/api/auth/register", Map.of("username", username, "password", PASSWORD,
+                "email", username + "@loadtest.local"));
+    }
+
+    private HttpRequest json(String path, Map<String, String> body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest authorized(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    // 进程内启动时用真实密钥签发已过期的token；外部实例只能构造随机签名的过期token
+    private String expiredToken(String username, Random random) throws IOException {
+        if (jwtUtil != null) {
+            UserDetails user = new User(username, "", Collections.emptyList());
+            synchronized (jwtUtil) {
+                Object expiration = ReflectionTestUtils.getField(jwtUtil, "expiration");
+                ReflectionTestUtils.setField(jwtUtil, "expiration", -TimeUnit.MINUTES.toMillis(1));
+                try {
+                    return jwtUtil.generateToken(user);
+                } finally {
+                    ReflectionTestUtils.setField(jwtUtil, "expiration", expiration);
+                }
+            }
+        }
+        long past = System.currentTimeMillis() / 1000 - 60;
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", username);
+        claims.put("iat", past - 60);
+        claims.put("exp", past);
+        String unsigned = ENCODER.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + ENCODER.encodeToString(MAPPER.writeValueAsBytes(claims));
+        return unsigned + "." + randomSignature(random);
+    }
+
+    // 保留头部和声明，替换签名
+    private static String forge(String token, Random random) {
+        return token.substring(0, token.lastIndexOf('.') + 1) + randomSignature(random);
+    }
+
+    private static String randomSignature(Random random) {
+        byte[] signature = new byte[32];
+        random.nextBytes(signature);
+        return ENCODER.encodeToString(signature);
+    }
+
+    private static HttpResponse<String> expectStatus(HttpResponse<String> response, int status, String action) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(action + " failed with status " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.jwtauth.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 负载测试的延迟统计
+ *
+ * 每种请求（操作/token类型，如 me/valid、protected/forged）一个HdrHistogram，单位为微秒。
+ * 每个工作线程持有自己的实例，结束后合并，记录过程没有线程间竞争。
+ *
+ * 输出：
+ * - 控制台汇总表：请求数、非预期响应数、吞吐量、p50/p90/p99/p99.9/max
+ * - <输出目录>/<请求>.hgrm：完整百分位分布，可用HdrHistogram的plotter对比
+ * - <输出目录>/summary.csv：汇总数据，作为后续运行的基线
+ */
+final class LatencyReport {
+
+    private static final String SUMMARY_FILE = "summary.csv";
+
+    private final Map<String, Histogram> histograms = new TreeMap<>();
+    private final Map<String, Long> unexpected = new HashMap<>();
+
+    void record(String request, long latencyMicros, boolean expected) {
+        histograms.computeIfAbsent(request, key -> new Histogram(3)).recordValue(Math.max(1, latencyMicros));
+        if (!expected) {
+            unexpected.merge(request, 1L, Long::sum);
+        }
+    }
+
+    // 按固定速率发送时用期望间隔修正协调遗漏
+    void record(String request, long latencyMicros, long expectedIntervalMicros, boolean expected) {
+        histograms.computeIfAbsent(request, key -> new Histogram(3))
+                  .recordValueWithExpectedInterval(Math.max(1, latencyMicros), expectedIntervalMicros);
+        if (!expected) {
+            unexpected.merge(request, 1L, Long::sum);
+        }
+    }
+
+    void merge(LatencyReport other) {
+        other.histograms.forEach((request, histogram) ->
+                histograms.computeIfAbsent(request, key -> new Histogram(3)).add(histogram));
+        other.unexpected.forEach((request, count) -> unexpected.merge(request, count, Long::sum));
+    }
+
+    long totalCount() {
+        return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    long totalUnexpected() {
+        return unexpected.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    void print(PrintStream out, double seconds, Map<String, double[]> baseline) {
+        out.printf("%-20s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "request", "count", "errors", "ops/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        histograms.forEach((request, h) -> {
+            double throughput = h.getTotalCount() / seconds;
+            double p99 = millis(h.getValueAtPercentile(99));
+            out.printf("%-20s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%s%n",
+                    request, h.getTotalCount(), unexpected.getOrDefault(request, 0L), throughput,
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)), p99,
+                    millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()),
+                    compare(baseline.get(request), throughput, p99));
+        });
+        out.printf("%-20s %10d %8d %10.1f%n", "total", totalCount(), totalUnexpected(), totalCount() / seconds);
+    }
+
+    void write(Path directory, double seconds) throws IOException {
+        Files.createDirectories(directory);
+        List<String> summary = new ArrayList<>();
+        summary.add("request,count,errors,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            String request = entry.getKey();
+            Histogram h = entry.getValue();
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    directory.resolve(request.replace('/', '-') + ".hgrm")), false, "UTF-8")) {
+                // 直方图单位为微秒，输出时换算为毫秒
+                h.outputPercentileDistribution(out, 1000.0);
+            }
+            summary.add(String.format("%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    request, h.getTotalCount(), unexpected.getOrDefault(request, 0L), h.getTotalCount() / seconds,
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue())));
+        }
+        Files.write(directory.resolve(SUMMARY_FILE), summary, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取基线运行的汇总数据
+     * @return 请求 -> {吞吐量, p99(ms)}，基线不存在时为空
+     */
+    static Map<String, double[]> readBaseline(Path directory) throws IOException {
+        Map<String, double[]> baseline = new HashMap<>();
+        if (directory == null || !Files.isRegularFile(directory.resolve(SUMMARY_FILE))) {
+            return baseline;
+        }
+        List<String> lines = Files.readAllLines(directory.resolve(SUMMARY_FILE), StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(",");
+            baseline.put(columns[0], new double[]{Double.parseDouble(columns[3]), Double.parseDouble(columns[6])});
+        }
+        return baseline;
+    }
+
+    private static String compare(double[] baseline, double throughput, double p99) {
+        if (baseline == null) {
+            return "";
+        }
+        return String.format("   (ops/s %+.1f%%, p99 %+.1f%%)",
+                percentChange(baseline[0], throughput), percentChange(baseline[1], p99));
+    }
+
+    private static double percentChange(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100.0 / before;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.jwtauth.loadtest;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 负载测试的流量配比
+ *
+ * 由两部分权重组成：
+ * - 操作配比：login、register、me、protected 各占的权重
+ * - token配比：需要token的操作（me、protected）携带 valid、expired、forged token 的权重
+ *
+ * 配比格式为逗号分隔的 name=weight，例如 "login=10,register=2,me=44,protected=44"，
+ * 也可以直接使用预设名称（见PRESETS）。抽样只依赖传入的Random，同一种子产生相同的请求序列。
+ */
+public final class TrafficMix {
+
+    public enum Operation {
+        LOGIN, REGISTER, ME, PROTECTED;
+
+        public boolean needsToken() {
+            return this == ME || this == PROTECTED;
+        }
+    }
+
+    public enum TokenKind {
+        VALID, EXPIRED, FORGED
+    }
+
+    // 预设配比：{操作配比, token配比}
+    private static final Map<String, String[]> PRESETS = new HashMap<>();
+
+    static {
+        // 常规流量：以已登录用户的读请求为主
+        PRESETS.put("default", new String[]{"login=10,register=2,me=44,protected=44", "valid=90,expired=5,forged=5"});
+        // 登录高峰：大量BCrypt校验和会话登记
+        PRESETS.put("login-storm", new String[]{"login=70,register=10,me=10,protected=10", "valid=100"});
+        // 攻击流量：大部分请求携带过期或伪造的token
+        PRESETS.put("attack", new String[]{"login=5,me=45,protected=50", "valid=20,expired=40,forged=40"});
+    }
+
+    private final Operation[] operations;
+    private final int[] operationWeights;
+    private final TokenKind[] tokenKinds;
+    private final int[] tokenWeights;
+
+    private TrafficMix(Map<Operation, Integer> operations, Map<TokenKind, Integer> tokens) {
+        this.operations = operations.keySet().toArray(new Operation[0]);
+        this.operationWeights = cumulative(operations.values().stream().mapToInt(Integer::intValue).toArray());
+        this.tokenKinds = tokens.keySet().toArray(new TokenKind[0]);
+        this.tokenWeights = cumulative(tokens.values().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 按预设名称创建配比
+     * @throws IllegalArgumentException 预设不存在时
+     */
+    public static TrafficMix preset(String name) {
+        String[] preset = PRESETS.get(name);
+        if (preset == null) {
+            throw new IllegalArgumentException("Unknown traffic mix preset: " + name + ", available: " + PRESETS.keySet());
+        }
+        return parse(preset[0], preset[1]);
+    }
+
+    /**
+     * 解析配比字符串
+     * @param operations 操作配比，如 "login=10,me=90"
+     * @param tokens token配比，如 "valid=90,forged=10"
+     * @throws IllegalArgumentException 名称未知、权重为负或总权重为0时
+     */
+    public static TrafficMix parse(String operations, String tokens) {
+        return new TrafficMix(parseWeights(operations, Operation.class), parseWeights(tokens, TokenKind.class));
+    }
+
+    public Operation nextOperation(Random random) {
+        return operations[pick(operationWeights, random)];
+    }
+
+    public TokenKind nextTokenKind(Random random) {
+        return tokenKinds[pick(tokenWeights, random)];
+    }
+
+    @Override
+    public String toString() {
+        return "operations=" + describe(operations, operationWeights) + ", tokens=" + describe(tokenKinds, tokenWeights);
+    }
+
+    private static <E extends Enum<E>> Map<E, Integer> parseWeights(String spec, Class<E> type) {
+        Map<E, Integer> weights = new EnumMap<>(type);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid weight '" + part + "', expected name=weight");
+            }
+            E key = Enum.valueOf(type, pair[0].trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + key);
+            }
+            if (weight > 0) {
+                weights.put(key, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Traffic mix '" + spec + "' has no positive weights");
+        }
+        return weights;
+    }
+
+    private static int[] cumulative(int[] weights) {
+        int[] result = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            result[i] = sum;
+        }
+        return result;
+    }
+
+    private static int pick(int[] cumulative, Random random) {
+        int value = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (value < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    private static String describe(Enum<?>[] keys, int[] cumulative) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(keys[i].name().toLowerCase(Locale.ROOT)).append('=')
+               .append(cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]));
+        }
+        return out.toString();
+    }
+}
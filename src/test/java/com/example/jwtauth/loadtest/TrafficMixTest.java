@@ -0,0 +1,58 @@
+package com.example.jwtauth.loadtest;
+
+import com.example.jwtauth.loadtest.TrafficMix.Operation;
+import com.example.jwtauth.loadtest.TrafficMix.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficMixTest {
+
+    @Test
+    void whenSameSeed_thenSameRequestSequence() {
+        TrafficMix mix = TrafficMix.preset("default");
+
+        // 相同种子产生相同的请求序列，保证多次运行可比
+        assertEquals(sequence(mix, 7L), sequence(mix, 7L));
+        assertNotEquals(sequence(mix, 7L), sequence(mix, 8L));
+    }
+
+    @Test
+    void whenParseWeights_thenSamplingFollowsWeights() {
+        TrafficMix mix = TrafficMix.parse("login=1,me=3", "valid=1,forged=0");
+        Random random = new Random(42);
+        Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+        for (int i = 0; i < 40000; i++) {
+            counts.merge(mix.nextOperation(random), 1, Integer::sum);
+            // 权重为0的类型不会被抽到
+            assertEquals(TokenKind.VALID, mix.nextTokenKind(random));
+        }
+
+        // 未配置的操作不会出现，其余按1:3分布
+        assertFalse(counts.containsKey(Operation.REGISTER));
+        assertEquals(0.25, counts.get(Operation.LOGIN) / 40000.0, 0.02);
+    }
+
+    @Test
+    void whenInvalidSpec_thenThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> TrafficMix.parse("logon=1", "valid=1"));
+        assertThrows(IllegalArgumentException.class, () -> TrafficMix.parse("login=0", "valid=1"));
+        assertThrows(IllegalArgumentException.class, () -> TrafficMix.preset("unknown"));
+    }
+
+    private static List<String> sequence(TrafficMix mix, long seed) {
+        Random random = new Random(seed);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Operation operation = mix.nextOperation(random);
+            result.add(operation.needsToken() ? operation + "/" + mix.nextTokenKind(random) : operation.name());
+        }
+        return result;
+    }
+}
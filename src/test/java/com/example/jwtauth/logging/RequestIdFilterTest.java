@@ -0,0 +1,56 @@
+package com.example.jwtauth.logging;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdFilterTest {
+
+    private final RequestIdFilter filter = new RequestIdFilter();
+
+    @Test
+    void whenRequestIdProvided_thenPropagatedToMdcAndResponse() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        request.addHeader(RequestIdFilter.HEADER, "client-id.42");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> seen.set(MDC.get(RequestIdFilter.MDC_KEY)));
+
+        assertEquals("client-id.42", seen.get());
+        assertEquals("client-id.42", response.getHeader(RequestIdFilter.HEADER));
+        // 请求结束后MDC被清理，线程复用时不会带上旧ID
+        assertNull(MDC.get(RequestIdFilter.MDC_KEY));
+    }
+
+    @Test
+    void whenTraceparentProvided_thenTraceIdIsUsed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        request.addHeader("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> { });
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", response.getHeader(RequestIdFilter.HEADER));
+    }
+
+    @Test
+    void whenRequestIdInvalid_thenNewIdIsGenerated() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        // 带换行的ID可能伪造日志行，不能原样使用
+        request.addHeader(RequestIdFilter.HEADER, "abc\nlevel=ERROR");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> { });
+
+        String requestId = response.getHeader(RequestIdFilter.HEADER);
+        assertNotEquals("abc\nlevel=ERROR", requestId);
+        assertEquals(16, requestId.length());
+        assertTrue(RequestIdFilter.isValid(requestId));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.jwtauth.logging;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SampledLoggerTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final SampledLogger sampledLogger =
+        new SampledLogger(LoggerFactory.getLogger(SampledLoggerTest.class), 2, 60_000);
+
+    @Test
+    void whenBurstExceeded_thenMessagesAreSuppressedUntilNextWindow() {
+        long start = 1_000L;
+        assertEquals(0, sampledLogger.acquire("ExpiredJwtException", start));
+        assertEquals(0, sampledLogger.acquire("ExpiredJwtException", start + 1));
+        // 超出burst的日志被抑制
+        assertEquals(-1, sampledLogger.acquire("ExpiredJwtException", start + 2));
+        assertEquals(-1, sampledLogger.acquire("ExpiredJwtException", start + 3));
+
+        // 下一个窗口的第一条日志报告上个窗口被抑制的条数
+        assertEquals(2, sampledLogger.acquire("ExpiredJwtException", start + WINDOW_NANOS));
+        assertEquals(0, sampledLogger.acquire("ExpiredJwtException", start + WINDOW_NANOS + 1));
+    }
+
+    @Test
+    void whenKeysDiffer_thenEachKeyHasItsOwnBudget() {
+        long now = 1_000L;
+        sampledLogger.acquire("ExpiredJwtException", now);
+        sampledLogger.acquire("ExpiredJwtException", now);
+        assertEquals(-1, sampledLogger.acquire("ExpiredJwtException", now));
+
+        assertEquals(0, sampledLogger.acquire("SignatureException", now));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.jwtauth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressResolverTest {
+
+    @Test
+    void whenNoHeaderConfigured_thenRemoteAddressIsUsed() {
+        ClientAddressResolver resolver = new ClientAddressResolver(new RateLimitProperties());
+
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "203.0.113.7")));
+    }
+
+    @Test
+    void whenRequestFromTrustedProxy_thenRightmostUntrustedAddressIsUsed() {
+        ClientAddressResolver resolver = new ClientAddressResolver(properties());
+
+        // 最左边的值由客户端伪造，代理追加的才可信
+        assertEquals("203.0.113.7", resolver.resolve(request("10.0.0.5", "198.51.100.1, 203.0.113.7")));
+        // 多级可信代理被跳过
+        assertEquals("203.0.113.7", resolver.resolve(request("10.0.0.5", "203.0.113.7, 10.0.0.9")));
+    }
+
+    @Test
+    void whenRequestNotFromTrustedProxy_thenHeaderIsIgnored() {
+        ClientAddressResolver resolver = new ClientAddressResolver(properties());
+
+        // 客户端直连时不能通过请求头冒充其他地址
+        assertEquals("203.0.113.7", resolver.resolve(request("203.0.113.7", "198.51.100.1")));
+    }
+
+    @Test
+    void whenHeaderMissing_thenRemoteAddressIsUsed() {
+        ClientAddressResolver resolver = new ClientAddressResolver(properties());
+
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", null)));
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setClientIpHeader("X-Forwarded-For");
+        properties.setTrustedProxies(Arrays.asList("10.0.0.0/8"));
+        return properties;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(remoteAddress);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.jwtauth.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private RateLimitProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.getRules().add(rule("/actuator/**", new HashMap<>()));
+        Map<String, Long> apiLimits = new HashMap<>();
+        apiLimits.put("USER", 2L);
+        apiLimits.put("ADMIN", 5L);
+        apiLimits.put(RateLimitProperties.DEFAULT, 1L);
+        apiLimits.put(RateLimitProperties.ANONYMOUS, 1L);
+        properties.getRules().add(rule("/api/**", apiLimits));
+
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(properties, meterRegistry);
+    }
+
+    @Test
+    void whenQuotaExhausted_thenRequestsAreRejectedWithRetryAfter() {
+        assertTrue(rateLimiter.tryAcquire("/api/auth/me", "user-1", Arrays.asList("USER")).isAllowed());
+        RateLimiter.Decision second = rateLimiter.tryAcquire("/api/auth/me", "user-1", Arrays.asList("USER"));
+        assertTrue(second.isAllowed());
+        assertEquals(2, second.getLimit());
+        assertEquals(0, second.getRemaining());
+        assertEquals("2;w=60", second.getPolicy());
+
+        RateLimiter.Decision rejected = rateLimiter.tryAcquire("/api/auth/me", "user-1", Arrays.asList("USER"));
+        assertFalse(rejected.isAllowed());
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        assertEquals(1, meterRegistry.get("ratelimit.rejected").tag("rule", "/api/**").counter().count());
+
+        // 其他主体的配额不受影响
+        assertTrue(rateLimiter.tryAcquire("/api/auth/me", "user-2", Arrays.asList("USER")).isAllowed());
+    }
+
+    @Test
+    void whenPrincipalHasSeveralRoles_thenLargestQuotaApplies() {
+        assertEquals(5, rateLimiter.tryAcquire("/api/test", "admin", Arrays.asList("USER", "ADMIN")).getLimit());
+        // 没有匹配角色时使用default，未认证时使用ANONYMOUS
+        assertEquals(1, rateLimiter.tryAcquire("/api/test", "key-owner", Collections.emptyList()).getLimit());
+        assertEquals(1, rateLimiter.tryAcquire("/api/test", "ip:127.0.0.1", null).getLimit());
+    }
+
+    @Test
+    void whenRuleHasNoQuota_thenRequestIsNotLimited() {
+        assertNull(rateLimiter.tryAcquire("/actuator/health/readiness", "ip:127.0.0.1", null));
+        assertNull(rateLimiter.tryAcquire("/other", "user-1", Arrays.asList("USER")));
+    }
+
+    @Test
+    void whenTooManyPrincipals_thenNewPrincipalsAreRejected() {
+        properties.setMaxTrackedBuckets(3);
+        for (int i = 0; i < 10; i++) {
+            // 每个主体都消耗了令牌，桶未装满也未空闲，无法淘汰；超出上限的新主体被拒绝而不是放行
+            RateLimiter.Decision decision = rateLimiter.tryAcquire("/api/test", "user-" + i, Arrays.asList("ADMIN"));
+            assertEquals(i < 3, decision.isAllowed());
+        }
+
+        assertEquals(3, rateLimiter.trackedBuckets());
+        assertEquals(7, meterRegistry.get("ratelimit.untracked").counter().count());
+        // 已跟踪的主体不受影响
+        assertTrue(rateLimiter.tryAcquire("/api/test", "user-0", Arrays.asList("ADMIN")).isAllowed());
+    }
+
+    @Test
+    void whenBucketsIdle_thenEvicted() {
+        rateLimiter.tryAcquire("/api/test", "user-1", Arrays.asList("USER"));
+        assertEquals(1, rateLimiter.trackedBuckets());
+
+        properties.setIdleEvictionMs(0);
+        rateLimiter.evictIdle();
+
+        assertEquals(0, rateLimiter.trackedBuckets());
+    }
+
+    private static RateLimitProperties.Rule rule(String pattern, Map<String, Long> limits) {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setPattern(pattern);
+        rule.setLimits(limits);
+        return rule;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.jwtauth.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void whenBucketEmpty_thenRefillsOverTime() {
+        // 容量2，每秒补充1个
+        TokenBucket bucket = new TokenBucket(2, 1, SECOND, 0);
+
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertFalse(bucket.tryConsume(0));
+        assertEquals(SECOND, bucket.nanosUntilNextToken(0));
+
+        // 半秒后仍不足一个令牌，一秒后可以再消耗一个
+        assertFalse(bucket.tryConsume(SECOND / 2));
+        assertTrue(bucket.tryConsume(SECOND));
+        assertEquals(0, bucket.getAvailable(SECOND));
+    }
+
+    @Test
+    void whenIdleForLong_thenTokensCappedAtCapacity() {
+        TokenBucket bucket = TokenBucket.perMinute(60, 0);
+        assertTrue(bucket.tryConsume(0));
+
+        assertEquals(60, bucket.getAvailable(3600 * SECOND));
+        assertEquals(0, bucket.nanosUntilFull(3600 * SECOND));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.jwtauth.security;
+
+import com.example.jwtauth.logging.RequestIdFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorResponseWriterTest {
+
+    private final ErrorResponseWriter writer = new ErrorResponseWriter();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void tearDown() {
+        MDC.remove(RequestIdFilter.MDC_KEY);
+    }
+
+    @Test
+    void whenWrite_thenBodyHasErrorResponseShape() throws Exception {
+        MDC.put(RequestIdFilter.MDC_KEY, "req-1");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request, response, ErrorResponseWriter.TOO_MANY_REQUESTS);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+
+        // 字段和顺序与ErrorResponse一致，路径与WebRequest.getDescription(false)一致
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        Iterator<String> names = body.fieldNames();
+        for (String expected : new String[]{"timestamp", "status", "error", "message", "path", "requestId"}) {
+            assertEquals(expected, names.next());
+        }
+        assertTrue(body.get("timestamp").asText().matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}"));
+        assertEquals(429, body.get("status").asInt());
+        assertEquals("Rate limit exceeded", body.get("message").asText());
+        assertEquals("uri=/api/test", body.get("path").asText());
+        assertEquals("req-1", body.get("requestId").asText());
+    }
+
+    @Test
+    void whenNoRequestId_thenRequestIdIsNull() throws Exception {
+        byte[] body = writer.body(ErrorResponseWriter.UNAUTHORIZED, "/api/test", null, 0L);
+
+        JsonNode json = objectMapper.readTree(body);
+        assertEquals(401, json.get("status").asInt());
+        assertTrue(json.get("requestId").isNull());
+    }
+
+    @Test
+    void whenPathNeedsEscaping_thenBodyIsValidJson() throws Exception {
+        byte[] body = writer.body(ErrorResponseWriter.FORBIDDEN, "/api/\"quoted\"\\ü", "req-1", 0L);
+
+        // 非ASCII字符按UTF-8输出，引号和反斜杠被转义
+        JsonNode json = objectMapper.readTree(new String(body, StandardCharsets.UTF_8));
+        assertEquals("uri=/api/\"quoted\"\\ü", json.get("path").asText());
+    }
+
+    @Test
+    void whenResponseCommitted_thenNothingWritten() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCommitted(true);
+
+        writer.write(new MockHttpServletRequest("GET", "/api/test"), response, ErrorResponseWriter.UNAUTHORIZED);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.jwtauth.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleTest {
+
+    private final PermissionChecker checker = new PermissionChecker();
+
+    @Test
+    void whenRoleHasParent_thenInheritsParentPermissions() {
+        // 上级角色的权限都包含在下级角色的掩码中
+        assertEquals(Role.USER.getPermissions(), Role.AUDITOR.getPermissions() & Role.USER.getPermissions());
+        assertEquals(Role.AUDITOR.getPermissions(), Role.ADMIN.getPermissions() & Role.AUDITOR.getPermissions());
+
+        assertTrue(Permission.USER_WRITE.isGrantedBy(Role.ADMIN.getPermissions()));
+        assertTrue(Permission.PROFILE_READ.isGrantedBy(Role.ADMIN.getPermissions()));
+        assertFalse(Permission.AUDIT_READ.isGrantedBy(Role.USER.getPermissions()));
+    }
+
+    @Test
+    void whenRolesCombined_thenMaskIsUnionAndUnknownRolesIgnored() {
+        long mask = Role.maskOf(Arrays.asList("USER", "AUDITOR", "UNKNOWN"));
+
+        assertEquals(Role.AUDITOR.getPermissions(), mask);
+        assertEquals(0L, Role.maskOf(null));
+        assertEquals(mask, Role.maskOfAuthorities(AuthorityUtils.createAuthorityList("ROLE_AUDITOR", "ROLE_UNKNOWN", "AUDITOR")));
+    }
+
+    @Test
+    void whenAuthenticationHasNoJwtDetails_thenPermissionsComeFromAuthorities() {
+        Authentication admin = new UsernamePasswordAuthenticationToken("admin", null,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        Authentication user = new UsernamePasswordAuthenticationToken("user", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        assertTrue(checker.has(admin, "USER_READ"));
+        assertFalse(checker.has(user, "USER_READ"));
+        assertTrue(checker.hasAny(user, "USER_READ", "API_ACCESS"));
+        // 未认证时没有任何权限
+        assertFalse(checker.has(new UsernamePasswordAuthenticationToken("anonymous", null), "PROFILE_READ"));
+        // 权限名称写错时立即失败
+        assertThrows(IllegalArgumentException.class, () -> checker.has(admin, "NO_SUCH_PERMISSION"));
+    }
+}
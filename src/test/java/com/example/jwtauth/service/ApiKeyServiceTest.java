@@ -0,0 +1,250 @@
+package com.example.jwtauth.service;
+
+import com.example.jwtauth.dto.ApiKeyRequest;
+import com.example.jwtauth.dto.ApiKeyResponse;
+import com.example.jwtauth.entity.ApiKey;
+import com.example.jwtauth.entity.User;
+import com.example.jwtauth.invalidation.InvalidationBus;
+import com.example.jwtauth.invalidation.LocalInvalidationTransport;
+import com.example.jwtauth.repository.ApiKeyRepository;
+import com.example.jwtauth.security.Permission;
+import com.example.jwtauth.security.Role;
+import com.example.jwtauth.service.impl.ApiKeyServiceImpl;
+import com.example.jwtauth.store.impl.InMemoryUserStore;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ApiKeyServiceTest {
+
+    private ApiKeyServiceImpl apiKeyService;
+    private InMemoryUserStore userStore;
+
+    @BeforeEach
+    void setUp() {
+        userStore = new InMemoryUserStore(4, "");
+        userStore.create(owner("testUser", "USER"));
+        userStore.create(owner("adminUser", "ADMIN"));
+        apiKeyService = service(60000L, 1000);
+    }
+
+    // 没有数据库时key只保存在内存中
+    private ApiKeyServiceImpl service(long cacheTtlMs, int cacheMaxSize) {
+        return service(null, cacheTtlMs, cacheMaxSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ApiKeyServiceImpl service(ApiKeyRepository repository, long cacheTtlMs, int cacheMaxSize) {
+        ObjectProvider<ApiKeyRepository> repositoryProvider = mock(ObjectProvider.class);
+        when(repositoryProvider.getIfAvailable()).thenReturn(repository);
+        return new ApiKeyServiceImpl(repositoryProvider, mock(ObjectProvider.class), userStore,
+                new InvalidationBus(new LocalInvalidationTransport()), cacheTtlMs, cacheMaxSize, 5000L, 1000, 1000, 600);
+    }
+
+    // 按哈希保存key的仓库，用于统计数据库查询次数
+    private static ApiKeyRepository repository() {
+        ApiKeyRepository repository = mock(ApiKeyRepository.class);
+        Map<String, ApiKey> stored = new HashMap<>();
+        AtomicLong ids = new AtomicLong();
+        when(repository.save(any(ApiKey.class))).thenAnswer(invocation -> {
+            ApiKey apiKey = invocation.getArgument(0);
+            apiKey.setId(ids.incrementAndGet());
+            stored.put(apiKey.getKeyHash(), apiKey);
+            return apiKey;
+        });
+        when(repository.findByKeyHash(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(stored.get(invocation.<String>getArgument(0))));
+        return repository;
+    }
+
+    private static User owner(String username, String role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("encodedPassword");
+        user.setEmail(username + "@example.com");
+        user.setRoles(Collections.singletonList(role));
+        return user;
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContextHolder.clear();
+    }
+
+    @Test
+    void whenKeyCreated_thenVerifiedWithOwnerAndScopes() {
+        ApiKeyResponse created = apiKeyService.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("ci", Collections.singletonList("API_ACCESS"), null, null));
+
+        assertTrue(created.getKey().startsWith(created.getKeyPrefix()));
+        VerifiedApiKey verified = apiKeyService.verify(created.getKey());
+        assertNotNull(verified);
+        assertEquals("testUser", verified.getUsername());
+        assertEquals(TenantContextHolder.DEFAULT_TENANT, verified.getTenantId());
+        assertEquals(Permission.API_ACCESS.mask(), verified.getPermissions());
+
+        // 列表中不再返回明文
+        assertNull(apiKeyService.findKeys("testUser").get(0).getKey());
+    }
+
+    @Test
+    void whenScopesExceedOwner_thenTheyAreDropped() {
+        // 没有指定作用域时继承创建者的权限，但不包括管理API key
+        ApiKeyResponse created = apiKeyService.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("all", null, null, null));
+        long permissions = apiKeyService.verify(created.getKey()).getPermissions();
+        assertTrue(Permission.API_ACCESS.isGrantedBy(permissions));
+        assertFalse(Permission.API_KEY_MANAGE.isGrantedBy(permissions));
+
+        // 只请求创建者没有的权限时创建失败
+        assertThrows(IllegalArgumentException.class, () -> apiKeyService.create("testUser",
+                Role.USER.getPermissions(), new ApiKeyRequest("admin", Arrays.asList("USER_WRITE"), null, null)));
+        assertThrows(IllegalArgumentException.class, () -> apiKeyService.create("testUser",
+                Role.USER.getPermissions(), new ApiKeyRequest("typo", Arrays.asList("NO_SUCH_SCOPE"), null, null)));
+    }
+
+    @Test
+    void whenKeyRevoked_thenVerificationFails() {
+        ApiKeyResponse created = apiKeyService.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("ci", null, null, null));
+        assertNotNull(apiKeyService.verify(created.getKey()));
+
+        // 其他用户不能吊销
+        assertFalse(apiKeyService.revoke("otherUser", created.getId()));
+        assertTrue(apiKeyService.revoke("testUser", created.getId()));
+
+        assertNull(apiKeyService.verify(created.getKey()));
+        assertNull(apiKeyService.verify("ak_not-a-real-key"));
+        assertNull(apiKeyService.verify("Bearer something"));
+    }
+
+    @Test
+    void whenRateLimitExceeded_thenRequestsAreRejected() {
+        ApiKeyResponse created = apiKeyService.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("ci", null, 2, null));
+        VerifiedApiKey verified = apiKeyService.verify(created.getKey());
+        long now = System.nanoTime();
+
+        assertTrue(apiKeyService.tryAcquire(verified, now));
+        // 令牌桶按key ID保存，再次验证使用同一个桶
+        assertTrue(apiKeyService.tryAcquire(apiKeyService.verify(created.getKey()), now));
+        assertFalse(apiKeyService.tryAcquire(verified, now));
+        assertTrue(apiKeyService.retryAfterSeconds(verified, now) >= 1);
+    }
+
+    @Test
+    void whenVerificationCacheFull_thenRateLimitStillApplies() {
+        // 验证缓存只能容纳一个key，两个key交替验证时互相淘汰
+        ApiKeyServiceImpl small = service(60000L, 1);
+        ApiKeyResponse created = small.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("ci", null, 2, null));
+        ApiKeyResponse other = small.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("other", null, null, null));
+        long now = System.nanoTime();
+
+        assertTrue(small.tryAcquire(small.verify(created.getKey()), now));
+        assertNotNull(small.verify(other.getKey()));
+        assertTrue(small.tryAcquire(small.verify(created.getKey()), now));
+        assertNotNull(small.verify(other.getKey()));
+        assertFalse(small.tryAcquire(small.verify(created.getKey()), now));
+    }
+
+    @Test
+    void whenUnknownKeyRepeated_thenRepositoryQueriedOnce() {
+        ApiKeyRepository repository = repository();
+        ApiKeyServiceImpl service = service(repository, 60000L, 1000);
+
+        // 不存在的key在短时间内被记住，伪造的key不会每次都查询数据库
+        for (int i = 0; i < 5; i++) {
+            assertNull(service.verify("ak_forged-key"));
+        }
+        verify(repository, times(1)).findByKeyHash(anyString());
+    }
+
+    @Test
+    void whenKeyArrivesWithCacheFull_thenItIsCachedByEvictingTheLeastRecentlyUsed() {
+        ApiKeyRepository repository = repository();
+        ApiKeyServiceImpl service = service(repository, 60000L, 2);
+        ApiKeyResponse first = service.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("first", null, null, null));
+        ApiKeyResponse second = service.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("second", null, null, null));
+        ApiKeyResponse third = service.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("third", null, null, null));
+        assertNotNull(service.verify(first.getKey()));
+        assertNotNull(service.verify(second.getKey()));
+        clearInvocations(repository);
+
+        // 缓存已满时淘汰旧项为新key腾出位置，新key只查询一次数据库
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(service.verify(third.getKey()));
+        }
+        verify(repository, times(1)).findByKeyHash(anyString());
+    }
+
+    @Test
+    void whenOwnerDisabled_thenKeyStopsWorkingOnReload() {
+        // 缓存项每次都过期，验证时重新检查所属用户
+        ApiKeyServiceImpl reloading = service(-1L, 1000);
+        ApiKeyResponse created = reloading.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("ci", null, null, null));
+        assertNotNull(reloading.verify(created.getKey()));
+
+        User owner = userStore.findByUsername(TenantContextHolder.DEFAULT_TENANT, "testUser").get();
+        owner.setEnabled(false);
+        userStore.save(owner);
+
+        assertNull(reloading.verify(created.getKey()));
+    }
+
+    @Test
+    void whenOwnerDemoted_thenKeyPermissionsShrink() {
+        ApiKeyServiceImpl reloading = service(-1L, 1000);
+        ApiKeyResponse created = reloading.create("adminUser", Role.ADMIN.getPermissions(),
+                new ApiKeyRequest("ops", Arrays.asList("USER_WRITE", "API_ACCESS"), null, null));
+        assertTrue(Permission.USER_WRITE.isGrantedBy(reloading.verify(created.getKey()).getPermissions()));
+
+        // 降级为普通用户后，key的作用域与用户当前权限取交集
+        User owner = userStore.findByUsername(TenantContextHolder.DEFAULT_TENANT, "adminUser").get();
+        owner.setRoles(Collections.singletonList("USER"));
+        userStore.save(owner);
+
+        long permissions = reloading.verify(created.getKey()).getPermissions();
+        assertFalse(Permission.USER_WRITE.isGrantedBy(permissions));
+        assertTrue(Permission.API_ACCESS.isGrantedBy(permissions));
+    }
+
+    @Test
+    void whenKeyCreatedInTenant_thenItBelongsToThatTenant() {
+        User acmeUser = owner("testUser", "USER");
+        acmeUser.setTenantId("acme");
+        userStore.create(acmeUser);
+        TenantContextHolder.setTenantId("acme");
+        ApiKeyResponse created = apiKeyService.create("testUser", Role.USER.getPermissions(),
+                new ApiKeyRequest("ci", null, null, null));
+
+        // 默认租户的同名用户看不到该key
+        TenantContextHolder.clear();
+        assertTrue(apiKeyService.findKeys("testUser").isEmpty());
+        assertEquals("acme", apiKeyService.verify(created.getKey()).getTenantId());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.jwtauth.service;
+
+import com.example.jwtauth.invalidation.InvalidationBus;
+import com.example.jwtauth.invalidation.LocalInvalidationTransport;
+import com.example.jwtauth.service.impl.SessionServiceImpl;
+import com.example.jwtauth.tenant.TenantRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SessionServiceTest {
+
+    private static final int MAX_ACTIVE = 2;
+
+    private SessionServiceImpl sessionService;
+
+    // 没有数据库时会话只保存在内存中
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sessionService = new SessionServiceImpl(mock(ObjectProvider.class), mock(ObjectProvider.class),
+                new TenantRegistry("", 3600000L), new InvalidationBus(new LocalInvalidationTransport()), MAX_ACTIVE);
+    }
+
+    @Test
+    void whenTooManyLogins_thenAnOlderSessionRevoked() {
+        List<String> jtis = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            jtis.add(sessionService.register("testUser", null));
+        }
+
+        // 超过上限时注销一个旧会话，最新的会话总是可用
+        assertTrue(sessionService.touch(jtis.get(2)));
+        assertEquals(MAX_ACTIVE, jtis.stream().filter(sessionService::touch).count());
+        assertEquals(MAX_ACTIVE, sessionService.findActiveSessions("testUser", null).size());
+    }
+
+    @Test
+    void whenRevokeAll_thenEverySessionStopsWorking() {
+        String first = sessionService.register("testUser", null);
+        String second = sessionService.register("testUser", null);
+
+        assertEquals(2, sessionService.revokeAll("testUser"));
+        assertFalse(sessionService.touch(first));
+        assertFalse(sessionService.touch(second));
+        assertTrue(sessionService.findActiveSessions("testUser", null).isEmpty());
+    }
+
+    @Test
+    void whenConcurrentLoginsAndRevokeAll_thenActiveSessionsStayWithinLimit() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 200; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    // 一个线程注销全部会话，其余线程同时登录；注销后重建的会话集合不能让登录绕过上限检查
+                    boolean revoker = t == 0;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        if (revoker) {
+                            sessionService.revokeAll("testUser");
+                        } else {
+                            sessionService.register("testUser", null);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(5, TimeUnit.SECONDS);
+                }
+
+                int active = sessionService.findActiveSessions("testUser", null).size();
+                assertTrue(active <= MAX_ACTIVE, "round " + round + ": " + active + " active sessions");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,22 +1,40 @@
 package com.example.jwtauth.service;
 
+import com.example.jwtauth.dto.RegisterRequest;
 import com.example.jwtauth.entity.User;
+import com.example.jwtauth.exception.UsernameAlreadyExistsException;
+import com.example.jwtauth.invalidation.InvalidationBus;
+import com.example.jwtauth.invalidation.LocalInvalidationTransport;
+import com.example.jwtauth.repository.UserAuthenticationRow;
 import com.example.jwtauth.repository.UserRepository;
 import com.example.jwtauth.service.impl.UserServiceImpl;
+import com.example.jwtauth.store.impl.JpaUserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
+import static com.example.jwtauth.tenant.TenantContextHolder.DEFAULT_TENANT;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class UserServiceTest {
@@ -24,7 +42,9 @@ class UserServiceTest {
     private UserServiceImpl userService;
     private PasswordEncoder passwordEncoder;
     private UserRepository userRepository;
+    private JdbcTemplate jdbcTemplate;
     private User testUser;
+    private RegisterRequest registerRequest;
 
     @BeforeEach
     void setUp() {
@@ -34,9 +54,17 @@ class UserServiceTest {
         
         // Mock用户仓库
         userRepository = mock(UserRepository.class);
-        
+
+        // Mock JDBC：非PostgreSQL数据库，注册走事务内的插入
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
         // 初始化用户服务
-        userService = new UserServiceImpl(passwordEncoder, userRepository);
+        JpaUserStore userStore = new JpaUserStore(userRepository, provider(jdbcTemplate), provider(transactionManager));
+        userService = new UserServiceImpl(passwordEncoder, userStore,
+            new InvalidationBus(new LocalInvalidationTransport()));
 
         // 准备测试用户数据
         testUser = new User();
@@ -44,27 +72,48 @@ class UserServiceTest {
         testUser.setPassword("password");
         testUser.setEmail("test@example.com");
         testUser.setRoles(Arrays.asList("USER"));
+
+        registerRequest = new RegisterRequest("testUser", "password", "test@example.com");
     }
 
     @Test
     void whenRegisterUser_thenSuccess() {
-        // 设置mock行为
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
-        
+        // 设置mock行为：插入用户行后返回生成的主键
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class), any(KeyHolder.class))).thenAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(1);
+            keyHolder.getKeyList().add(Collections.<String, Object>singletonMap("id", 1L));
+            return 1;
+        });
+
         // 注册用户
-        User registeredUser = userService.registerUser(testUser);
+        User registeredUser = userService.registerUser(registerRequest);
 
-        // 验证结果
+        // 验证结果：角色固定为USER，账号状态为默认值
         assertNotNull(registeredUser);
+        assertEquals(Long.valueOf(1L), registeredUser.getId());
         assertEquals("testUser", registeredUser.getUsername());
         assertEquals("encodedPassword", registeredUser.getPassword());
-        assertTrue(registeredUser.getRoles().contains("USER"));
+        assertEquals(Collections.singletonList("USER"), registeredUser.getRoles());
+        assertTrue(registeredUser.isEnabled());
+        assertTrue(registeredUser.isAccountNonLocked());
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void whenRegisterExistingUsername_thenRejectedWithoutEncoding() {
+        // 设置mock行为
+        when(userRepository.existsByTenantIdAndUsername(DEFAULT_TENANT, "testUser")).thenReturn(true);
+
+        // 重复注册被拒绝，且没有做密码加密
+        assertThrows(UsernameAlreadyExistsException.class, () -> userService.registerUser(registerRequest));
+        verify(passwordEncoder, never()).encode(anyString());
+        verify(jdbcTemplate, never()).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
     }
 
     @Test
     void whenFindByUsername_thenSuccess() {
         // 设置mock行为
-        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByTenantIdAndUsername(DEFAULT_TENANT, "testUser")).thenReturn(Optional.of(testUser));
         
         // 查找用户
         User foundUser = userService.findByUsername("testUser");
@@ -77,20 +126,32 @@ class UserServiceTest {
     @Test
     void whenLoadByUsername_thenSuccess() {
         // 设置mock行为
-        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(testUser));
-        
+        UserAuthenticationRow row = mock(UserAuthenticationRow.class);
+        when(row.getUsername()).thenReturn("testUser");
+        when(row.getPassword()).thenReturn("password");
+        when(row.getEnabled()).thenReturn(true);
+        when(row.getAccountNonExpired()).thenReturn(true);
+        when(row.getAccountNonLocked()).thenReturn(true);
+        when(row.getCredentialsNonExpired()).thenReturn(true);
+        when(row.getRole()).thenReturn("USER");
+        when(userRepository.findAuthenticationRows(DEFAULT_TENANT, "testUser")).thenReturn(Collections.singletonList(row));
+
         // 加载用户
         UserDetails userDetails = userService.loadUserByUsername("testUser");
 
         // 验证结果
         assertNotNull(userDetails);
         assertEquals("testUser", userDetails.getUsername());
+        assertTrue(userDetails.isEnabled());
+        assertEquals(1, userDetails.getAuthorities().size());
+        // 认证走投影查询，不加载实体
+        verify(userRepository, never()).findByTenantIdAndUsername(anyString(), anyString());
     }
 
     @Test
     void whenLoadByUsername_thenThrowsException() {
         // 设置mock行为
-        when(userRepository.findByUsername("nonexistentUser")).thenReturn(Optional.empty());
+        when(userRepository.findAuthenticationRows(DEFAULT_TENANT, "nonexistentUser")).thenReturn(Collections.emptyList());
         
         // 验证不存在的用户会抛出异常
         assertThrows(UsernameNotFoundException.class, () -> {
@@ -101,7 +162,7 @@ class UserServiceTest {
     @Test
     void whenExistsByUsername_thenReturnsTrue() {
         // 设置mock行为
-        when(userRepository.existsByUsername("testUser")).thenReturn(true);
+        when(userRepository.existsByTenantIdAndUsername(DEFAULT_TENANT, "testUser")).thenReturn(true);
         
         // 验证用户存在
         assertTrue(userService.existsByUsername("testUser"));
@@ -110,9 +171,16 @@ class UserServiceTest {
     @Test
     void whenExistsByUsername_thenReturnsFalse() {
         // 设置mock行为
-        when(userRepository.existsByUsername("nonexistentUser")).thenReturn(false);
+        when(userRepository.existsByTenantIdAndUsername(DEFAULT_TENANT, "nonexistentUser")).thenReturn(false);
         
         // 验证用户不存在
         assertFalse(userService.existsByUsername("nonexistentUser"));
     }
-} 
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T object) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(object);
+        return provider;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.jwtauth.startup;
+
+import com.example.jwtauth.service.SessionService;
+import com.example.jwtauth.store.UserStore;
+import com.example.jwtauth.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WarmUpRunnerTest {
+
+    private JwtUtil jwtUtil;
+    private PasswordEncoder passwordEncoder;
+    private UserStore userStore;
+    private SessionService sessionService;
+    private SimpleMeterRegistry meterRegistry;
+    private WarmUpRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        // 使用真实的JwtUtil，其余依赖用Mock
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600000L);
+        jwtUtil.init();
+
+        passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        userStore = mock(UserStore.class);
+        sessionService = mock(SessionService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        runner = new WarmUpRunner(jwtUtil, passwordEncoder, new ObjectMapper(), userStore, sessionService, meterRegistry);
+        ReflectionTestUtils.setField(runner, "enabled", true);
+        ReflectionTestUtils.setField(runner, "tokenIterations", 10);
+        ReflectionTestUtils.setField(runner, "bcryptIterations", 2);
+        ReflectionTestUtils.setField(runner, "jsonIterations", 5);
+        ReflectionTestUtils.setField(runner, "storeIterations", 3);
+        ReflectionTestUtils.setField(runner, "sessionIterations", 4);
+    }
+
+    @Test
+    void whenRun_thenEachPhaseIsExecutedAndReported() {
+        runner.run(null);
+
+        // 每个阶段都按配置的次数执行
+        verify(passwordEncoder, times(2)).matches(eq("warmup-password"), eq("encodedPassword"));
+        verify(userStore, times(3)).findByUsername(anyString(), anyString());
+        verify(userStore, times(3)).findForAuthentication(anyString(), anyString());
+        verify(sessionService, times(4)).touch(anyString());
+
+        // 次数和耗时都记录为指标
+        assertEquals(10, meterRegistry.get("startup.warmup.iterations").tag("phase", "token").counter().count());
+        assertEquals(5, meterRegistry.get("startup.warmup.iterations").tag("phase", "json").counter().count());
+        assertEquals(1, meterRegistry.get("startup.warmup.duration").tag("phase", "store").timer().count());
+    }
+
+    @Test
+    void whenPhaseFails_thenFailureIsCountedAndStartupContinues() {
+        // 数据库不可用时查询失败
+        when(userStore.existsByUsername(anyString(), anyString())).thenThrow(new IllegalStateException("database unavailable"));
+
+        assertDoesNotThrow(() -> runner.run(null));
+
+        // 失败的阶段立即结束，后续阶段照常执行
+        assertEquals(1, meterRegistry.get("startup.warmup.failures").tag("phase", "store").counter().count());
+        assertEquals(0, meterRegistry.get("startup.warmup.iterations").tag("phase", "store").counter().count());
+        verify(sessionService, times(4)).touch(anyString());
+    }
+
+    @Test
+    void whenDisabled_thenNothingIsExecuted() {
+        ReflectionTestUtils.setField(runner, "enabled", false);
+
+        runner.run(null);
+
+        verifyNoInteractions(passwordEncoder, userStore, sessionService);
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+}
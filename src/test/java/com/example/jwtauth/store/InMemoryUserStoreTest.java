@@ -0,0 +1,167 @@
+package com.example.jwtauth.store;
+
+import com.example.jwtauth.entity.User;
+import com.example.jwtauth.store.impl.InMemoryUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.example.jwtauth.tenant.TenantContextHolder.DEFAULT_TENANT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStoreTest {
+
+    private InMemoryUserStore userStore;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        userStore = new InMemoryUserStore(4, "");
+
+        // 准备测试用户数据
+        testUser = new User();
+        testUser.setUsername("testUser");
+        testUser.setPassword("encodedPassword");
+        testUser.setEmail("test@example.com");
+        testUser.setRoles(Arrays.asList("USER"));
+    }
+
+    @Test
+    void whenSaveUser_thenIdAssignedAndFound() {
+        User saved = userStore.save(testUser);
+
+        assertNotNull(saved.getId());
+        assertTrue(userStore.existsByUsername(DEFAULT_TENANT, "testUser"));
+        Optional<User> found = userStore.findByUsername(DEFAULT_TENANT, "testUser");
+        assertTrue(found.isPresent());
+        assertEquals("testUser", found.get().getUsername());
+    }
+
+    @Test
+    void whenUsernameDiffersInCase_thenItIsAnotherUser() {
+        userStore.save(testUser);
+
+        // 与数据库的唯一约束一致，用户名区分大小写
+        assertFalse(userStore.existsByUsername(DEFAULT_TENANT, "TESTUSER"));
+        User other = new User();
+        other.setUsername("TestUser");
+        other.setPassword("other");
+        assertTrue(userStore.create(other).isPresent());
+        assertEquals("encodedPassword", userStore.findByUsername(DEFAULT_TENANT, "testUser").get().getPassword());
+    }
+
+    @Test
+    void whenSaveDuplicateUsername_thenThrowsException() {
+        userStore.save(testUser);
+
+        User duplicate = new User();
+        duplicate.setUsername("testUser");
+        duplicate.setPassword("other");
+
+        assertThrows(DuplicateKeyException.class, () -> userStore.save(duplicate));
+    }
+
+    @Test
+    void whenCreateDuplicateUsername_thenNotStored() {
+        assertTrue(userStore.create(testUser).isPresent());
+
+        User duplicate = new User();
+        duplicate.setUsername("testUser");
+        duplicate.setPassword("other");
+
+        // 冲突时不写入也不抛出异常
+        assertFalse(userStore.create(duplicate).isPresent());
+        assertEquals("encodedPassword", userStore.findByUsername(DEFAULT_TENANT, "testUser").get().getPassword());
+    }
+
+    @Test
+    void whenSameUsernameInAnotherTenant_thenStoredSeparately() {
+        userStore.save(testUser);
+
+        User other = new User();
+        other.setTenantId("acme");
+        other.setUsername("testUser");
+        other.setPassword("acmePassword");
+
+        // 不同租户可以使用相同的用户名
+        assertDoesNotThrow(() -> userStore.save(other));
+        assertEquals("encodedPassword", userStore.findByUsername(DEFAULT_TENANT, "testUser").get().getPassword());
+        assertEquals("acmePassword", userStore.findByUsername("acme", "testUser").get().getPassword());
+        assertFalse(userStore.existsByUsername("other", "testUser"));
+    }
+
+    @Test
+    void whenReturnedUserModified_thenStoreUnchanged() {
+        userStore.save(testUser);
+
+        // 修改返回的副本不应影响存储内容
+        userStore.findByUsername(DEFAULT_TENANT, "testUser").get().setPassword("changed");
+
+        assertEquals("encodedPassword", userStore.findByUsername(DEFAULT_TENANT, "testUser").get().getPassword());
+    }
+
+    @Test
+    void whenSnapshotAndRestore_thenUsersRecovered(@TempDir Path tempDir) throws Exception {
+        userStore.save(testUser);
+        Path file = tempDir.resolve("users.snapshot");
+        userStore.snapshot(file);
+
+        InMemoryUserStore restored = new InMemoryUserStore(8, "");
+        restored.restore(file);
+
+        User user = restored.findByUsername(DEFAULT_TENANT, "testUser").orElseThrow(AssertionError::new);
+        assertEquals(testUser.getId(), user.getId());
+        assertEquals(DEFAULT_TENANT, user.getTenantId());
+        assertEquals("test@example.com", user.getEmail());
+        assertEquals(Arrays.asList("USER"), user.getRoles());
+        assertTrue(user.isEnabled());
+
+        // 恢复后新用户的ID不会与已有ID冲突
+        User another = new User();
+        another.setUsername("another");
+        assertTrue(restored.save(another).getId() > user.getId());
+    }
+
+    @Test
+    void whenVersionOneSnapshotRestored_thenUsersBelongToDefaultTenant(@TempDir Path tempDir) throws Exception {
+        // 版本1的记录：ID | 状态位 | 角色数 | 用户名 | 密码 | 邮箱 | 角色...，没有租户字段
+        byte[][] strings = {ascii("legacyUser"), ascii("encodedPassword"), ascii("legacy@example.com"), ascii("USER")};
+        int size = 4 + 4 + 8 + 4 + 8 + 1 + 4;
+        for (byte[] value : strings) {
+            size += 4 + value.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size)
+                .putInt(0x4A555352)
+                .putInt(1)
+                .putLong(7L)
+                .putInt(1)
+                .putLong(7L)
+                .put((byte) 0x0F)
+                .putInt(1);
+        for (byte[] value : strings) {
+            buffer.putInt(value.length).put(value);
+        }
+        Path file = tempDir.resolve("users-v1.snapshot");
+        Files.write(file, buffer.array());
+
+        userStore.restore(file);
+
+        User user = userStore.findByUsername(DEFAULT_TENANT, "legacyUser").orElseThrow(AssertionError::new);
+        assertEquals(DEFAULT_TENANT, user.getTenantId());
+        assertEquals(Long.valueOf(7L), user.getId());
+        assertEquals(Arrays.asList("USER"), user.getRoles());
+        assertTrue(user.isEnabled());
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.jwtauth.store;
+
+import com.example.jwtauth.entity.User;
+import com.example.jwtauth.store.impl.JpaUserStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.example.jwtauth.tenant.TenantContextHolder.DEFAULT_TENANT;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JpaUserStoreTest {
+
+    @Autowired
+    private JpaUserStore userStore;
+
+    @Test
+    void whenCreateUser_thenUserAndRolesWrittenTogether() {
+        Optional<User> created = userStore.create(user("createdUser", "created@example.com"));
+
+        assertTrue(created.isPresent());
+        assertNotNull(created.get().getId());
+        User found = userStore.findByUsername(DEFAULT_TENANT, "createdUser").get();
+        assertEquals(2, found.getRoles().size());
+        assertTrue(found.getRoles().containsAll(Arrays.asList("USER", "AUDITOR")));
+    }
+
+    @Test
+    void whenCreateDuplicateUsername_thenNothingWritten() {
+        assertTrue(userStore.create(user("duplicateUser", "first@example.com")).isPresent());
+
+        // 冲突时返回空，不抛出异常，原用户不受影响
+        assertFalse(userStore.create(user("duplicateUser", "second@example.com")).isPresent());
+        assertEquals("first@example.com", userStore.findByUsername(DEFAULT_TENANT, "duplicateUser").get().getEmail());
+    }
+
+    @Test
+    void whenFindForAuthentication_thenFieldsAndAllRolesLoaded() {
+        userStore.create(user("authUser", "auth@example.com"));
+
+        // 每个角色一行，合并为一个用户
+        User found = userStore.findForAuthentication(DEFAULT_TENANT, "authUser").get();
+        assertEquals("authUser", found.getUsername());
+        assertEquals("auth@example.com", found.getEmail());
+        assertTrue(found.isEnabled());
+        assertEquals(2, found.getRoles().size());
+        assertTrue(found.getRoles().containsAll(Arrays.asList("USER", "AUDITOR")));
+        assertFalse(userStore.findForAuthentication(DEFAULT_TENANT, "missingUser").isPresent());
+    }
+
+    private static User user(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("encodedPassword");
+        user.setEmail(email);
+        user.setRoles(Arrays.asList("USER", "AUDITOR"));
+        return user;
+    }
+}
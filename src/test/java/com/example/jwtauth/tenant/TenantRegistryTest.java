@@ -0,0 +1,89 @@
+package com.example.jwtauth.tenant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantRegistryTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenConfigLoaded_thenTenantsFoundByIdAndIssuer() throws Exception {
+        Path file = write("[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"" + SECRET + "\",\"expirationMs\":60000},"
+                + "{\"id\":\"globex\",\"issuer\":\"https://globex\",\"secret\":\"" + SECRET + "\"}]");
+        TenantRegistry registry = new TenantRegistry(file.toString(), 3600000L);
+        registry.init();
+
+        assertEquals("acme", registry.findByIssuer("https://acme").getId());
+        assertEquals("https://globex", registry.findById("globex").getIssuer());
+        // 未单独配置有效期的租户使用默认值
+        assertEquals(60000L, registry.getExpiration("acme"));
+        assertEquals(3600000L, registry.getExpiration("globex"));
+        assertTrue(registry.isActive(TenantContextHolder.DEFAULT_TENANT));
+        assertFalse(registry.isActive("unknown"));
+    }
+
+    @Test
+    void whenTenantDisabled_thenNotResolvable() throws Exception {
+        Path file = write("[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"" + SECRET + "\",\"enabled\":false}]");
+        TenantRegistry registry = new TenantRegistry(file.toString(), 3600000L);
+        registry.init();
+
+        assertNull(registry.findByIssuer("https://acme"));
+        assertFalse(registry.isActive("acme"));
+    }
+
+    @Test
+    void whenFileModified_thenReloaded() throws Exception {
+        Path file = write("[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"" + SECRET + "\"}]");
+        TenantRegistry registry = new TenantRegistry(file.toString(), 3600000L);
+        registry.init();
+
+        write("[{\"id\":\"acme\",\"issuer\":\"https://acme-v2\",\"secret\":\"" + SECRET + "\"}]");
+        // 显式推进修改时间，避免文件系统时间精度导致检测不到变化
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        registry.reloadIfModified();
+
+        assertNull(registry.findByIssuer("https://acme"));
+        assertEquals("acme", registry.findByIssuer("https://acme-v2").getId());
+    }
+
+    @Test
+    void whenReloadedFileInvalid_thenPreviousTenantsKept() throws Exception {
+        Path file = write("[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"" + SECRET + "\"}]");
+        TenantRegistry registry = new TenantRegistry(file.toString(), 3600000L);
+        registry.init();
+
+        // 密钥过短，新配置无效
+        write("[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"c2hvcnQ=\"}]");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        registry.reloadIfModified();
+
+        assertNotNull(registry.findByIssuer("https://acme"));
+    }
+
+    @Test
+    void whenDuplicateIssuer_thenRejected() throws Exception {
+        Path file = write("[{\"id\":\"a\",\"issuer\":\"https://same\",\"secret\":\"" + SECRET + "\"},"
+                + "{\"id\":\"b\",\"issuer\":\"https://same\",\"secret\":\"" + SECRET + "\"}]");
+        TenantRegistry registry = new TenantRegistry(file.toString(), 3600000L);
+
+        assertThrows(IllegalArgumentException.class, registry::init);
+    }
+
+    private Path write(String json) throws Exception {
+        return Files.write(tempDir.resolve("tenants.json"), json.getBytes(StandardCharsets.UTF_8));
+    }
+}
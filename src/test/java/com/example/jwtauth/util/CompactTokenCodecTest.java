@@ -0,0 +1,78 @@
+package com.example.jwtauth.util;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTokenCodecTest {
+
+    private CompactTokenCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        codec = new CompactTokenCodec(Keys.secretKeyFor(SignatureAlgorithm.HS256));
+    }
+
+    @Test
+    void whenEncodeAndDecode_thenClaimsMatch() {
+        long now = System.currentTimeMillis();
+        CompactClaims claims = new CompactClaims()
+                .setSubject("testUser")
+                .setId("token-1")
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + 3600000L))
+                .put(100, Arrays.asList("USER", "ADMIN"))
+                .put(101, -42L);
+
+        String token = codec.encode(claims);
+
+        // 紧凑令牌只有一个点号
+        assertTrue(CompactTokenCodec.isCompact(token));
+        CompactClaims decoded = codec.decode(token);
+        assertEquals("testUser", decoded.getSubject());
+        assertEquals("token-1", decoded.getId());
+        assertEquals((now + 3600000L) / 1000L, decoded.getExpiration().getTime() / 1000L);
+        assertEquals(Arrays.asList("USER", "ADMIN"), decoded.getStringList(100));
+        assertEquals(-42L, decoded.getLong(101));
+    }
+
+    @Test
+    void whenStandardJwt_thenNotCompact() {
+        assertFalse(CompactTokenCodec.isCompact("eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0.c2ln"));
+    }
+
+    @Test
+    void whenSignedWithDifferentKey_thenSignatureFails() {
+        CompactTokenCodec other = new CompactTokenCodec(Keys.secretKeyFor(SignatureAlgorithm.HS256));
+        String token = other.encode(new CompactClaims().setSubject("testUser"));
+
+        assertThrows(SignatureException.class, () -> codec.decode(token));
+    }
+
+    @Test
+    void whenTokenExpired_thenDecodeFails() {
+        String token = codec.encode(new CompactClaims()
+                .setSubject("testUser")
+                .setExpiration(new Date(System.currentTimeMillis() - 3600000L)));
+
+        assertThrows(ExpiredJwtException.class, () -> codec.decode(token));
+    }
+
+    @Test
+    void whenPayloadTampered_thenDecodeFails() {
+        String token = codec.encode(new CompactClaims().setSubject("testUser"));
+        String tampered = "A" + token.substring(1);
+
+        assertThrows(SignatureException.class, () -> codec.decode(tampered));
+        assertThrows(MalformedJwtException.class, () -> codec.decode("not-a-token"));
+    }
+}
@@ -1,12 +1,22 @@
 package com.example.jwtauth.util;
 
+import com.example.jwtauth.security.Role;
+import com.example.jwtauth.tenant.TenantContextHolder;
+import com.example.jwtauth.tenant.TenantRegistry;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,8 +29,10 @@ class JwtUtilTest {
     void setUp() {
         jwtUtil = new JwtUtil();
         // 设置测试密钥和过期时间
-        ReflectionTestUtils.setField(jwtUtil, "secret", "testSecretKeyWithMinimumLength32Chars");
+        ReflectionTestUtils.setField(jwtUtil, "secret", secret());
         ReflectionTestUtils.setField(jwtUtil, "expiration", 3600000L);
+        // 初始化密钥、签名引擎和解析器
+        jwtUtil.init();
 
         // 创建测试用户
         userDetails = User.withUsername("testUser")
@@ -76,4 +88,87 @@ class JwtUtilTest {
         // 验证token对不同用户无效
         assertFalse(jwtUtil.validateToken(token, differentUser));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void whenGenerateToken_thenPermissionMaskIsCarried() {
+        UserDetails admin = User.withUsername("admin").password("password").roles("ADMIN").build();
+
+        // 标准JWT和紧凑令牌都携带展开后的权限掩码
+        assertEquals(Role.ADMIN.getPermissions(), jwtUtil.parseToken(jwtUtil.generateToken(admin, "jti-1")).getPermissions());
+        ReflectionTestUtils.setField(jwtUtil, "compactEnabled", true);
+        assertEquals(Role.ADMIN.getPermissions(), jwtUtil.parseToken(jwtUtil.generateCompactToken(admin)).getPermissions());
+
+        // 没有角色的用户掩码为0
+        assertEquals(0L, jwtUtil.parseToken(jwtUtil.generateToken(userDetails)).getPermissions());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContextHolder.clear();
+    }
+
+    @Test
+    void whenTokenIssuedForTenant_thenVerifiedWithTenantKey(@TempDir Path tempDir) throws Exception {
+        useTenants(tempDir, "[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"" + secret() + "\"}]");
+
+        // 以acme租户签发
+        TenantContextHolder.setTenantId("acme");
+        String token = jwtUtil.generateToken(userDetails, "jti-1");
+        TenantContextHolder.clear();
+
+        // 验证时按iss找到租户，不依赖当前请求的租户
+        TokenClaims claims = jwtUtil.parseToken(token);
+        assertEquals("acme", claims.getTenantId());
+        assertEquals("testUser", claims.getSubject());
+        assertTrue(jwtUtil.validateToken(claims, userDetails));
+
+        // 默认租户的token仍然有效
+        assertEquals(TenantContextHolder.DEFAULT_TENANT, jwtUtil.parseToken(jwtUtil.generateToken(userDetails)).getTenantId());
+    }
+
+    @Test
+    void whenSameSecretOnAnotherNode_thenDefaultTenantTokenIsValid() {
+        // 另一个节点使用相同的jwt.secret
+        JwtUtil otherNode = new JwtUtil();
+        ReflectionTestUtils.setField(otherNode, "secret", secret());
+        ReflectionTestUtils.setField(otherNode, "expiration", 3600000L);
+        otherNode.init();
+
+        assertTrue(otherNode.validateToken(jwtUtil.generateToken(userDetails), userDetails));
+    }
+
+    @Test
+    void whenSecretTooShort_thenInitFails() {
+        JwtUtil invalid = new JwtUtil();
+        ReflectionTestUtils.setField(invalid, "secret", "c2hvcnQ=");
+        ReflectionTestUtils.setField(invalid, "expiration", 3600000L);
+
+        assertThrows(IllegalStateException.class, invalid::init);
+    }
+
+    @Test
+    void whenTenantRemoved_thenItsTokensRejected(@TempDir Path tempDir) throws Exception {
+        TenantRegistry registry = useTenants(tempDir,
+                "[{\"id\":\"acme\",\"issuer\":\"https://acme\",\"secret\":\"" + secret() + "\"}]");
+        TenantContextHolder.setTenantId("acme");
+        String token = jwtUtil.generateToken(userDetails, "jti-1");
+
+        // 重新加载后租户不存在，token验证失败
+        Files.write(tempDir.resolve("tenants.json"), "[]".getBytes(StandardCharsets.UTF_8));
+        registry.reload();
+
+        assertThrows(UnsupportedJwtException.class, () -> jwtUtil.parseToken(token));
+    }
+
+    private TenantRegistry useTenants(Path tempDir, String json) throws Exception {
+        Path file = Files.write(tempDir.resolve("tenants.json"), json.getBytes(StandardCharsets.UTF_8));
+        TenantRegistry registry = new TenantRegistry(file.toString(), 3600000L);
+        registry.init();
+        ReflectionTestUtils.setField(jwtUtil, "tenantRegistry", registry);
+        return registry;
+    }
+
+    private static String secret() {
+        return Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+    }
+}